@@ -0,0 +1,52 @@
+#!/usr/bin/env bash
+# Compares time-to-first-handled-update and steady-state RSS of the fat-jar
+# image the bot used to ship with and the image built from ./Dockerfile.
+#
+# Usage: scripts/measure-startup.sh <env-file> [runs]
+#
+# The env file holds the usual BOT_* and DB_* variables of a test bot.
+# Before every run the bot is stopped; send any message to a group with the
+# test bot so that a pending update is waiting when the container starts.
+set -euo pipefail
+
+ENV_FILE=${1:?usage: $0 <env-file> [runs]}
+RUNS=${2:-3}
+STEADY_SECONDS=${STEADY_SECONDS:-120}
+CPUS=${CPUS:-1}
+MEMORY=${MEMORY:-1g}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+
+docker build -q -t wakethemallbot:before -f - "$ROOT" >/dev/null <<'DOCKERFILE'
+FROM maven:3.9.10-eclipse-temurin-21-alpine AS build
+WORKDIR /app
+COPY pom.xml .
+COPY src ./src
+RUN mvn clean package -DskipTests
+FROM eclipse-temurin:21-jdk-alpine
+WORKDIR /app
+COPY --from=build /app/target/wake-them-all-bot-0.0.1-SNAPSHOT.jar app.jar
+ENTRYPOINT ["java", "-jar", "app.jar"]
+DOCKERFILE
+docker build -q -t wakethemallbot:after "$ROOT" >/dev/null
+
+measure() {
+    local image=$1 container first rss
+    read -r -p "Send a message to the test group, then press Enter to start $image"
+    container=$(docker run -d --cpus "$CPUS" --memory "$MEMORY" --env-file "$ENV_FILE" "$image")
+    first=""
+    for _ in $(seq 1 600); do
+        first=$(docker logs "$container" 2>&1 | sed -n 's/.*First update handled \([0-9]*\) ms.*/\1/p' | head -n 1)
+        [ -n "$first" ] && break
+        sleep 0.5
+    done
+    sleep "$STEADY_SECONDS"
+    rss=$(docker exec "$container" sh -c "grep VmRSS /proc/1/status" | awk '{print $2}')
+    docker rm -f "$container" >/dev/null
+    printf '%s\t%s\t%s\n' "$image" "${first:-timeout}" "$((rss / 1024))"
+}
+
+printf 'image\tfirst_update_ms\trss_mb\n'
+for _ in $(seq 1 "$RUNS"); do
+    measure wakethemallbot:before
+    measure wakethemallbot:after
+done
@@ -0,0 +1,46 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class FloodLimiterBenchmark {
+
+    private static final Long HOT_CHAT_ID = -1L;
+
+    @Param({"1", "1000"})
+    private int chats;
+
+    private FloodLimiter limiter;
+
+    private Long[] chatIds;
+
+    @Setup
+    public void setUp() {
+        limiter = new FloodLimiter(new BotProperties.Flood());
+        chatIds = new Long[chats];
+        for (int i = 0; i < chats; i++) {
+            chatIds[i] = -1L - i;
+        }
+    }
+
+    @Benchmark
+    public boolean hotChat() {
+        return limiter.tryAcquire(HOT_CHAT_ID);
+    }
+
+    @Benchmark
+    public boolean spreadChats() {
+        return limiter.tryAcquire(chatIds[ThreadLocalRandom.current().nextInt(chats)]);
+    }
+
+}
@@ -0,0 +1,67 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MentionRenderBenchmark {
+
+    @Param({"10", "200", "5000"})
+    private int rosterSize;
+
+    private List<MentionTarget> roster;
+
+    private MentionRenderer renderer;
+
+    @Setup
+    public void setUp() {
+        roster = new ArrayList<>(rosterSize);
+        for (int i = 0; i < rosterSize; i++) {
+            String lastName = i % 3 == 0 ? null : "Last_name-" + i;
+            roster.add(new MentionTarget((long) i, "First.name!" + i, lastName, "user" + i, null));
+        }
+        renderer = new MentionRenderer(new BotProperties.MentionCache());
+        renderer.render(roster);
+    }
+
+    @Benchmark
+    public String regexEscaping() {
+        return roster.stream()
+                .map(MentionRenderBenchmark::regexMention)
+                .collect(Collectors.joining(" "));
+    }
+
+    @Benchmark
+    public String cachedFragments() {
+        return renderer.render(roster);
+    }
+
+    @Benchmark
+    public List<String> cachedFragmentChunks() {
+        return renderer.renderChunks(roster, 4096, 50);
+    }
+
+    @Benchmark
+    public String singlePassEscaping() {
+        MentionRenderer coldRenderer = new MentionRenderer(new BotProperties.MentionCache());
+        return coldRenderer.render(roster);
+    }
+
+    private static String regexMention(MentionTarget user) {
+        String name = user.lastName() == null ? user.firstName() : user.firstName() + " " + user.lastName();
+        String escapedName = name.replaceAll("([_*\\[\\]()~`>#+\\-=|{}.!])", "\\\\$1");
+        return "[" + escapedName + "](tg://user?id=" + user.id() + ")";
+    }
+
+}
@@ -0,0 +1,70 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.service.ChatUserService;
+import kg.obukhov.wakethemallbot.service.InMemoryMentionOutbox;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChatAdministrators;
+import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChatMember;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberAdministrator;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberMember;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StubBot extends Bot {
+
+    private final LongAdder apiCalls = new LongAdder();
+
+    public StubBot(ChatUserService chatUserService) {
+        super(chatUserService, new InMemoryMentionOutbox(), benchmarkProperties(), new SimpleMeterRegistry());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method) {
+        apiCalls.increment();
+        if (method instanceof GetChatMember getChatMember) {
+            ChatMemberMember member = new ChatMemberMember();
+            member.setUser(new User(getChatMember.getUserId(), "Member", false));
+            return (T) member;
+        }
+        if (method instanceof GetChatAdministrators) {
+            ChatMemberAdministrator administrator = new ChatMemberAdministrator();
+            administrator.setUser(new User(1L, "Admin", false));
+            return (T) new ArrayList<>(List.of(administrator));
+        }
+        return (T) new Message();
+    }
+
+    public long getApiCalls() {
+        return apiCalls.sum();
+    }
+
+    public void awaitApiCalls(long count) {
+        while (apiCalls.sum() < count) {
+            Thread.onSpinWait();
+        }
+    }
+
+    public static BotProperties benchmarkProperties() {
+        BotProperties properties = new BotProperties();
+        properties.setUsername("benchmark_bot");
+        properties.setToken("0:benchmark");
+        properties.getFanOut().setRequestsPerSecond(1_000_000);
+        properties.getFanOut().setBurst(1_000_000);
+        properties.getOutbound().setGlobalPerSecond(1_000_000);
+        properties.getOutbound().setChatPerSecond(1_000_000);
+        properties.getOutbound().setGroupPerMinute(1_000_000);
+        properties.getFlood().getDefaults().setDuration(Duration.ofSeconds(1));
+        properties.getFlood().getDefaults().setLimit(1_000_000);
+        return properties;
+    }
+
+}
@@ -0,0 +1,95 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import kg.obukhov.wakethemallbot.service.InMemoryChatUserService;
+import org.openjdk.jmh.annotations.*;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateHandlingBenchmark {
+
+    private static final long CHAT_ID = -100L;
+
+    private static final Duration SETTLE_TIME = Duration.ofMillis(500);
+
+    @Param({"10", "200", "5000"})
+    private int rosterSize;
+
+    private StubBot bot;
+
+    private Update plainMessage;
+
+    private Update mentionAllMessage;
+
+    private long callsPerMention;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        InMemoryChatUserService chatUserService = new InMemoryChatUserService();
+        List<MentionTarget> roster = new ArrayList<>(rosterSize);
+        for (int i = 0; i < rosterSize; i++) {
+            roster.add(new MentionTarget(1_000L + i, "Member" + i, i % 2 == 0 ? null : "Last", "member" + i, null));
+        }
+        chatUserService.putRoster(CHAT_ID, roster);
+
+        bot = new StubBot(chatUserService);
+        plainMessage = update("Just chatting about the weekend plans, nothing to see here");
+        mentionAllMessage = update("/all come here");
+
+        bot.handleUpdate(mentionAllMessage);
+        Thread.sleep(SETTLE_TIME.toMillis());
+        callsPerMention = bot.getApiCalls();
+        if (callsPerMention == 0) {
+            throw new IllegalStateException("Mention of " + rosterSize + " members did not reach the API");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        bot.close();
+    }
+
+    @Benchmark
+    public void plainGroupMessage() {
+        bot.handleUpdate(plainMessage);
+    }
+
+    @Benchmark
+    public void mentionAll() {
+        long expected = bot.getApiCalls() + callsPerMention;
+        bot.handleUpdate(mentionAllMessage);
+        bot.awaitApiCalls(expected);
+    }
+
+    private static Update update(String text) {
+        Chat chat = new Chat(CHAT_ID, "supergroup");
+        chat.setTitle("Benchmark chat");
+
+        Message message = new Message();
+        message.setMessageId(1);
+        message.setChat(chat);
+        message.setFrom(new User(1L, "Author", false));
+        message.setDate((int) Instant.now().getEpochSecond());
+        message.setText(text);
+
+        Update update = new Update();
+        update.setUpdateId(1);
+        update.setMessage(message);
+        return update;
+    }
+
+}
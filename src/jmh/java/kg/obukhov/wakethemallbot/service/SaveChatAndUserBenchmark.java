@@ -0,0 +1,111 @@
+package kg.obukhov.wakethemallbot.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kg.obukhov.wakethemallbot.bot.StubBot;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.interfaces.ChatMapperImpl;
+import kg.obukhov.wakethemallbot.interfaces.UserMapperImpl;
+import kg.obukhov.wakethemallbot.repository.JdbcMembershipStore;
+import kg.obukhov.wakethemallbot.repository.MembershipRepository;
+import kg.obukhov.wakethemallbot.repository.MembershipStore;
+import kg.obukhov.wakethemallbot.repository.MentionTargetRepository;
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveChatAndUserBenchmark {
+
+    private static final String SCHEMA = "save_chat_and_user_benchmark";
+
+    private static final long CHAT_ID = -42L;
+
+    private static final int BATCH = 500;
+
+    private static final long FIRST_USER_ID = 1_000_000L;
+
+    private ChatUserService chatUserService;
+
+    private MembershipBuffer membershipBuffer;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private Chat chat;
+
+    private User knownUser;
+
+    private long nextUserId;
+
+    @Setup
+    public void setUp() throws LiquibaseException {
+        String url = "jdbc:postgresql://%s:%s/%s?currentSchema=%s&reWriteBatchedInserts=true".formatted(
+                env("DB_HOST", "localhost"), env("DB_PORT", "5432"), env("DB_NAME", "wakethemall"), SCHEMA);
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url,
+                env("DB_USERNAME", "admin"), env("DB_PASSWORD", "admin"));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setDefaultSchema(SCHEMA);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+
+        BotProperties properties = StubBot.benchmarkProperties();
+        properties.getMembership().setBatchSize(BATCH);
+        MembershipStore membershipStore = new JdbcMembershipStore(new MentionTargetRepository(jdbcTemplate),
+                new MembershipRepository(jdbcTemplate));
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RosterCache rosterCache = new RosterCache(properties, meterRegistry);
+        membershipBuffer = new MembershipBuffer(membershipStore, new ChatMapperImpl(), new UserMapperImpl(),
+                rosterCache, properties, meterRegistry);
+        chatUserService = new ChatUserService(membershipStore, membershipBuffer, rosterCache, meterRegistry);
+
+        chat = new Chat(CHAT_ID, "supergroup");
+        chat.setTitle("Benchmark chat");
+        knownUser = new User(FIRST_USER_ID, "Known", false);
+        chatUserService.saveChatAndUser(chat, knownUser);
+        membershipBuffer.flush();
+        nextUserId = FIRST_USER_ID + 1;
+    }
+
+    @Benchmark
+    public void knownMembership() {
+        chatUserService.saveChatAndUser(chat, knownUser);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void newMembershipsWithFlush() {
+        for (int i = 0; i < BATCH; i++) {
+            chatUserService.saveChatAndUser(chat, new User(nextUserId++, "New", false));
+        }
+        membershipBuffer.flush();
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    private static String env(String name, String defaultValue) {
+        return Objects.requireNonNullElse(System.getenv(name), defaultValue);
+    }
+
+}
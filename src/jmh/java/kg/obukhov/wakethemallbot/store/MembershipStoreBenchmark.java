@@ -0,0 +1,123 @@
+package kg.obukhov.wakethemallbot.store;
+
+import kg.obukhov.wakethemallbot.model.ChatEntity;
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
+import kg.obukhov.wakethemallbot.repository.JdbcMembershipStore;
+import kg.obukhov.wakethemallbot.repository.MembershipRepository;
+import kg.obukhov.wakethemallbot.repository.MembershipStore;
+import kg.obukhov.wakethemallbot.repository.MentionTargetRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MembershipStoreBenchmark {
+
+    private static final long FIRST_CHAT_ID = -1_000_000L;
+
+    private static final long FIRST_USER_ID = 1_000_000L;
+
+    @Param({"embedded", "jdbc"})
+    private String storage;
+
+    @Param({"1000"})
+    private int chats;
+
+    @Param({"50"})
+    private int membersPerChat;
+
+    private MembershipStore store;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        long heapBefore = usedHeap();
+        if ("embedded".equals(storage)) {
+            directory = Files.createTempDirectory("membership-store");
+            store = new EmbeddedMembershipStore(directory, 256L * 1024 * 1024);
+        } else {
+            String url = "jdbc:postgresql://%s:%s/%s?reWriteBatchedInserts=true".formatted(
+                    env("DB_HOST", "localhost"), env("DB_PORT", "5432"), env("DB_NAME", "wakethemall"));
+            jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url,
+                    env("DB_USERNAME", "admin"), env("DB_PASSWORD", "admin")));
+            store = new JdbcMembershipStore(new MentionTargetRepository(jdbcTemplate), new MembershipRepository(jdbcTemplate));
+        }
+
+        for (int chat = 0; chat < chats; chat++) {
+            ChatEntity chatEntity = new ChatEntity();
+            chatEntity.setId(FIRST_CHAT_ID - chat);
+            chatEntity.setType("supergroup");
+            chatEntity.setTitle("Benchmark chat " + chat);
+            List<TelegramUserEntity> users = new ArrayList<>(membersPerChat);
+            List<MembershipKey> memberships = new ArrayList<>(membersPerChat);
+            for (int member = 0; member < membersPerChat; member++) {
+                long userId = FIRST_USER_ID + (long) chat * membersPerChat + member;
+                TelegramUserEntity user = new TelegramUserEntity();
+                user.setId(userId);
+                user.setFirstName("User " + userId);
+                user.setUserName("user" + userId);
+                user.setPrivateChatId(member % 2 == 0 ? userId : null);
+                users.add(user);
+                memberships.add(new MembershipKey(userId, chatEntity.getId()));
+            }
+            store.insertAll(List.of(chatEntity), users, memberships);
+        }
+        System.out.printf("%n%s store holds %d memberships in about %d KB of heap%n",
+                storage, (long) chats * membersPerChat, (usedHeap() - heapBefore) / 1024);
+    }
+
+    @Benchmark
+    public List<MentionTarget> findAllByChatId() {
+        return store.findAllByChatId(FIRST_CHAT_ID - ThreadLocalRandom.current().nextInt(chats));
+    }
+
+    @Benchmark
+    public Long findPrivateChatId() {
+        return store.findPrivateChatId(FIRST_USER_ID + ThreadLocalRandom.current().nextLong((long) chats * membersPerChat));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (store instanceof EmbeddedMembershipStore embedded) {
+            embedded.close();
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        } else {
+            jdbcTemplate.update("DELETE FROM chat WHERE id <= ? AND id > ?", FIRST_CHAT_ID, FIRST_CHAT_ID - chats);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String env(String name, String defaultValue) {
+        return Objects.requireNonNullElse(System.getenv(name), defaultValue);
+    }
+
+}
@@ -1,60 +1,128 @@
 package kg.obukhov.wakethemallbot.bot;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import kg.obukhov.wakethemallbot.config.BotProperties;
-import kg.obukhov.wakethemallbot.model.ChatEntity;
-import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
+import kg.obukhov.wakethemallbot.model.MentionNotification;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
 import kg.obukhov.wakethemallbot.service.ChatUserService;
+import kg.obukhov.wakethemallbot.service.MentionOutbox;
+import kg.obukhov.wakethemallbot.service.UpdateInbox;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
+import org.springframework.dao.DataAccessException;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
 import org.telegram.telegrambots.meta.api.methods.commands.SetMyCommands;
+import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChatAdministrators;
 import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChatMember;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.ChatMemberUpdated;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.User;
 import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMember;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberRestricted;
 import org.telegram.telegrambots.meta.api.objects.commands.BotCommand;
 import org.telegram.telegrambots.meta.api.objects.commands.scope.BotCommandScopeDefault;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+import java.io.Serializable;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
-public class Bot extends TelegramLongPollingBot {
+public class Bot extends TelegramLongPollingBot implements AutoCloseable {
 
-    private static final String[] MENTION_ALL_COMMANDS = {"/all", "@all", "/everyone", "@everyone", "@ёу"};
-    private static final String[] MENTION_ADMIN_COMMANDS = {"/admins", "@admins", "/administrators", "@administrators"};
     private static final Set<String> ALL_GROUP_MEMBER_STATUSES = Set.of("member", "administrator", "creator");
     private static final Set<String> ADMIN_GROUP_MEMBER_STATUSES = Set.of("administrator", "creator");
+    private static final List<String> ALLOWED_UPDATES = List.of("message", "my_chat_member", "chat_member");
     private static final String MESSAGE_DELETED_ERROR = "[400] Bad Request: message to be replied not found";
     private static final String SEND_FAILED_MESSAGE = "Мой автор криворукий, поэтому я не смог отправить уведомление";
+    private static final String PARTIAL_SEND_FAILED_MESSAGE = "Не удалось отправить %d из %d сообщений с упоминаниями";
     private static final String NO_MEMBERS_MESSAGE = "Не удалось найти подходящих пользователей для упоминания";
     private static final String PARSE_MODE = "MarkdownV2";
-    private static final Duration LAST_MENTIONS_DURATION = Duration.ofSeconds(5);
-    private static final int LAST_MENTIONS_LIMIT = 1;
     private static final String LAST_MENTIONS_LIMIT_MESSAGE = "Не флудите. Пожалейте народ!";
     private static final String PRIVATE_CHAT_RESPONSE_MESSAGE = "Бот вас запомнил и будет пересылать упоминания в общих чатах";
     private static final Duration REPLY_TIMEOUT = Duration.ofMinutes(30);
 
-    private final Map<Long, List<Instant>> lastMentions;
+    private final ChatRateLimiter floodLimiter;
+
+    private final MentionRenderer mentionRenderer;
+
+    private final CommandDetector commandDetector;
 
     private final ChatUserService chatUserService;
 
+    private final MentionOutbox mentionOutbox;
+
+    private final UpdateInbox updateInbox;
+
+    private final TokenBucket apiRateLimiter;
+
+    private final ChatAdminCache chatAdminCache;
+
+    private final BotMetrics botMetrics;
+
+    private final BotProperties.MentionChunks mentionChunks;
+
+    private final CatchUpMonitor catchUpMonitor;
+
+    private final TelegramApiClient apiClient;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    @Getter
+    private final OutboundScheduler outboundScheduler;
+
+    @Getter
+    private final UpdateDispatcher updateDispatcher;
+
     @Getter
     private final String botUsername;
 
-    public Bot(ChatUserService chatUserService, BotProperties properties) {
-        super(properties.getToken());
+    public Bot(ChatUserService chatUserService, MentionOutbox mentionOutbox, BotProperties properties,
+               MeterRegistry meterRegistry) {
+        this(chatUserService, mentionOutbox, new FloodLimiter(properties.getFlood()), null, properties, meterRegistry);
+    }
+
+    public Bot(ChatUserService chatUserService, MentionOutbox mentionOutbox, ChatRateLimiter floodLimiter,
+               UpdateInbox updateInbox, BotProperties properties, MeterRegistry meterRegistry) {
+        super(createOptions(properties), properties.getToken());
         this.chatUserService = chatUserService;
+        this.mentionOutbox = mentionOutbox;
+        this.floodLimiter = floodLimiter;
+        this.updateInbox = updateInbox;
+        this.botMetrics = new BotMetrics(meterRegistry);
+        this.apiClient = new TelegramApiClient(getBaseUrl());
         this.botUsername = properties.getUsername();
-        this.lastMentions = new HashMap<>();
+        this.mentionRenderer = new MentionRenderer(properties.getMentionCache());
+        this.mentionChunks = properties.getMentionChunks();
+        this.catchUpMonitor = new CatchUpMonitor(properties.getCatchUp().getLiveThreshold(), botMetrics,
+                chatUserService::flushMemberships);
+        this.commandDetector = new CommandDetector(properties.getTriggers());
+
+        BotProperties.FanOut fanOut = properties.getFanOut();
+        this.apiRateLimiter = new TokenBucket(fanOut.getRequestsPerSecond(), Duration.ofSeconds(1), fanOut.getBurst());
+        this.chatAdminCache = new ChatAdminCache(properties.getAdminCache(), this::loadChatAdmins);
+        this.outboundScheduler = new OutboundScheduler(this, properties.getOutbound());
+        botMetrics.monitorOutbound(outboundScheduler);
+        this.updateDispatcher = new UpdateDispatcher(this::handleUpdate, properties.getDispatch());
+    }
+
+    private static DefaultBotOptions createOptions(BotProperties properties) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setBaseUrl(properties.getApiUrl());
+        options.setAllowedUpdates(ALLOWED_UPDATES);
+        return options;
     }
 
     public void registerCommands() {
@@ -70,32 +138,138 @@ public class Bot extends TelegramLongPollingBot {
         }
     }
 
+    public void registerWebhook(BotProperties.Webhook webhook) throws TelegramApiException {
+        SetWebhook setWebhook = SetWebhook.builder()
+                .url(webhook.getUrl() + webhook.getPath())
+                .secretToken(webhook.getSecretToken())
+                .allowedUpdates(ALLOWED_UPDATES)
+                .build();
+        execute(setWebhook);
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method) throws TelegramApiException {
+        long start = System.nanoTime();
+        TelegramApiException failure = null;
+        try {
+            return apiClient.execute(method);
+        } catch (TelegramApiException e) {
+            failure = e;
+            throw e;
+        } finally {
+            botMetrics.recordApiCall(method.getClass().getSimpleName(), failure, System.nanoTime() - start);
+        }
+    }
+
     @Override
     public void onUpdateReceived(Update update) {
-        handleUpdate(update);
+        if (updateInbox == null) {
+            updateDispatcher.submit(update);
+        } else {
+            updateInbox.submit(update);
+        }
+    }
+
+    public boolean receiveUpdate(Update update) {
+        return updateInbox == null ? updateDispatcher.dispatch(update) : updateInbox.offer(update);
     }
 
-    private void handleUpdate(Update update) {
+    @Override
+    public void onClosing() {
+        log.info("Long polling session of {} closed", botUsername);
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        updateDispatcher.close();
+        outboundScheduler.close();
+        apiClient.close();
+        super.onClosing();
+    }
+
+    void handleUpdate(Update update) {
+        long start = System.nanoTime();
+        try {
+            processUpdate(update);
+        } finally {
+            botMetrics.recordUpdate(update, System.nanoTime() - start);
+            catchUpMonitor.recordHandled();
+        }
+    }
+
+    private void processUpdate(Update update) {
         log.debug("Update received: {}", update);
 
+        Duration age = CatchUpMonitor.getAge(update);
+        boolean expired = age != null && age.compareTo(REPLY_TIMEOUT) > 0;
+        catchUpMonitor.record(age, expired);
+
         if (update.hasMyChatMember()) {
             Chat chat = update.getMyChatMember().getChat();
             User from = update.getMyChatMember().getFrom();
-            chatUserService.saveChatAndUser(chat, from);
+            if (isGroupChat(chat) && !isPresent(update.getMyChatMember().getNewChatMember())) {
+                chatUserService.removeChat(chat.getId());
+            } else {
+                chatUserService.saveChatAndUser(chat, from);
+            }
+            chatAdminCache.invalidate(chat.getId());
+        }
+
+        if (update.hasChatMember()) {
+            ChatMemberUpdated chatMember = update.getChatMember();
+            updateRoster(chatMember.getChat(), chatMember.getNewChatMember());
+            if (isAdminChange(chatMember)) {
+                chatAdminCache.invalidate(chatMember.getChat().getId());
+            }
         }
 
         if (update.hasMessage()) {
             Message message = update.getMessage();
             User author = message.getFrom();
-            chatUserService.saveChatAndUser(message.getChat(), author);
-            if (isGroupChat(message.getChat())) {
+            if (message.getNewChatMembers() != null) {
+                message.getNewChatMembers().forEach(member -> chatUserService.saveChatAndUser(message.getChat(), member));
+            }
+            User leftMember = message.getLeftChatMember();
+            if (leftMember != null) {
+                chatUserService.removeUserFromChat(leftMember.getId(), message.getChatId());
+            }
+            if (expired) {
+                log.debug("Message {} was sent {} ago. Ignoring mentions", message.getMessageId(), age);
+                botMetrics.recordStaleMessage();
+            } else if (isGroupChat(message.getChat())) {
                 sendMentions(message, author);
             } else {
                 sendPrivateChatDenialMessage(message.getChat());
             }
+            if (leftMember == null || !leftMember.getId().equals(author.getId())) {
+                chatUserService.saveChatAndUser(message.getChat(), author);
+            }
         }
     }
 
+    private void updateRoster(Chat chat, ChatMember member) {
+        if (isPresent(member)) {
+            chatUserService.saveChatAndUser(chat, member.getUser());
+        } else {
+            chatUserService.removeUserFromChat(member.getUser().getId(), chat.getId());
+        }
+    }
+
+    private static boolean isPresent(ChatMember member) {
+        if (member instanceof ChatMemberRestricted restricted) {
+            return Boolean.TRUE.equals(restricted.getIsMember());
+        }
+        return ALL_GROUP_MEMBER_STATUSES.contains(member.getStatus());
+    }
+
+    private static boolean isAdminChange(ChatMemberUpdated chatMemberUpdated) {
+        return ADMIN_GROUP_MEMBER_STATUSES.contains(chatMemberUpdated.getOldChatMember().getStatus())
+                || ADMIN_GROUP_MEMBER_STATUSES.contains(chatMemberUpdated.getNewChatMember().getStatus());
+    }
+
     private static boolean isGroupChat(Chat chat) {
         return chat.getId() < 0;
     }
@@ -107,155 +281,221 @@ public class Bot extends TelegramLongPollingBot {
                 .parseMode(PARSE_MODE)
                 .disableWebPagePreview(true)
                 .build();
-        try {
-            execute(privateMessage);
-        } catch (TelegramApiException e) {
-            log.error(e.getMessage(), e);
-        }
+        outboundScheduler.submit(chat.getId(), OutboundScheduler.Priority.PRIVATE_MESSAGE, privateMessage)
+                .exceptionally(e -> {
+                    log.error(e.getMessage(), e);
+                    return null;
+                });
     }
 
     private void sendMentions(Message message, User author) {
-        if (StringUtils.containsAnyIgnoreCase(message.getText(), MENTION_ALL_COMMANDS)) {
+        MentionCommand command = commandDetector.detect(message);
+        if (command == MentionCommand.ALL) {
             log.debug("Sending mentions to all members of chat {}", message.getChat().getTitle());
-            sendMentions(message, author, ALL_GROUP_MEMBER_STATUSES);
-        } else if (StringUtils.containsAnyIgnoreCase(message.getText(), MENTION_ADMIN_COMMANDS)) {
+            mentionAll(message, author);
+        } else if (command == MentionCommand.ADMINS) {
             log.debug("Sending mentions to admin members of chat {}", message.getChat().getTitle());
-            sendMentions(message, author, ADMIN_GROUP_MEMBER_STATUSES);
+            mentionAdmins(message, author);
         } else {
             log.debug("No mention commands found in message {}", message.getMessageId());
         }
     }
 
-    private void sendMentions(Message messageToReply, User author, Set<String> memberStatuses) {
-        Instant messageInstant = Instant.ofEpochSecond(messageToReply.getDate());
-        Duration messageAge = Duration.between(messageInstant, Instant.now());
-        if (messageAge.compareTo(REPLY_TIMEOUT) > 0) {
-            log.info("Message {} was sent at {}. Ignoring reply", messageToReply.getMessageId(), messageInstant);
-            return;
+    private void mentionAll(Message messageToReply, User author) {
+        Chat chat = messageToReply.getChat();
+        List<MentionTarget> chatUsers = getChatUsers(chat, author);
+        botMetrics.recordFanOut(MentionCommand.ALL, chatUsers.size());
+        if (replyWithMentions(messageToReply, chatUsers)) {
+            enqueuePrivateMentions(messageToReply, chatUsers, author);
         }
+    }
 
+    private void mentionAdmins(Message messageToReply, User author) {
         Chat chat = messageToReply.getChat();
-        List<TelegramUserEntity> chatUsers = getChatUsers(chat, author);
-
-        if (chatUsers.isEmpty()) {
-            reply(chat.getId(), escapeMarkdownV2(NO_MEMBERS_MESSAGE), messageToReply.getMessageId(), false);
-        } else {
-            String text = getMessageText(chatUsers);
-            reply(chat.getId(), text, messageToReply.getMessageId(), true);
-            for (TelegramUserEntity user : chatUsers) {
-                if (isUserGroupMember(chat.getId(), user.getId(), memberStatuses)) {
-                    sendPrivateMention(user, author, chat);
-                } else {
-                    chatUserService.removeUserFromChat(user, chat);
-                }
-            }
+        List<MentionTarget> admins = getChatAdmins(chat, author);
+        botMetrics.recordFanOut(MentionCommand.ADMINS, admins.size());
+        if (replyWithMentions(messageToReply, admins)) {
+            enqueuePrivateMentions(messageToReply, admins, author);
         }
     }
 
-    private List<TelegramUserEntity> getChatUsers(Chat chat, User excluded) {
-        return chatUserService.findAllByChatId(chat.getId())
-                .stream()
-                .filter(user -> !excluded.getUserName().equals(user.getUserName()))
-                .toList();
-    }
+    private boolean replyWithMentions(Message messageToReply, List<MentionTarget> users) {
+        Long chatId = messageToReply.getChatId();
+        if (users.isEmpty()) {
+            reply(chatId, MarkdownV2.escape(NO_MEMBERS_MESSAGE), messageToReply.getMessageId(), false);
+            return false;
+        }
 
-    private void reply(Long chatId, String text, Integer replyToMessageId, boolean notifyIsCaseOfError) {
-        if (!ensureLastMentionsLimit(chatId, replyToMessageId, notifyIsCaseOfError)) {
-            return;
+        Integer messageId = messageToReply.getMessageId();
+        if (!ensureLastMentionsLimit(chatId, messageId, true)) {
+            return true;
+        }
+
+        List<String> chunks = mentionRenderer.renderChunks(users, mentionChunks.getMaxLength(), mentionChunks.getMaxMentions());
+        List<CompletableFuture<Message>> sent = new ArrayList<>(chunks.size());
+        for (String chunk : chunks) {
+            sent.add(sendMentionChunk(chatId, chunk, messageId));
         }
+        CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, throwable) -> reportMentionChunks(chatId, messageId, sent));
+        return true;
+    }
 
+    private CompletableFuture<Message> sendMentionChunk(Long chatId, String text, Integer replyToMessageId) {
         SendMessage message = SendMessage.builder()
                 .chatId(chatId)
                 .text(text)
                 .replyToMessageId(replyToMessageId)
+                .allowSendingWithoutReply(true)
                 .parseMode(PARSE_MODE)
                 .disableWebPagePreview(true)
                 .disableNotification(false)
                 .build();
+        return outboundScheduler.submit(chatId, OutboundScheduler.Priority.GROUP_REPLY, message);
+    }
 
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            if (e.getMessage() != null && e.getMessage().contains(MESSAGE_DELETED_ERROR)) {
-                send(chatId, text, notifyIsCaseOfError);
-            } else {
-                log.error(e.getMessage(), e);
-                if (notifyIsCaseOfError) {
-                    send(chatId, escapeMarkdownV2(SEND_FAILED_MESSAGE), false);
-                }
+    private void reportMentionChunks(Long chatId, Integer messageId, List<CompletableFuture<Message>> sent) {
+        int failed = 0;
+        for (int i = 0; i < sent.size(); i++) {
+            CompletableFuture<Message> chunk = sent.get(i);
+            if (chunk.isCompletedExceptionally()) {
+                Throwable e = unwrap(chunk.exceptionNow());
+                log.error("Failed to send mention chunk {} of {} for message {} in chat {}: {}",
+                        i + 1, sent.size(), messageId, chatId, e.getMessage());
+                failed++;
             }
         }
+        botMetrics.recordMentionChunks(sent.size() - failed, failed);
+        if (failed == sent.size()) {
+            send(chatId, MarkdownV2.escape(SEND_FAILED_MESSAGE), false);
+        } else if (failed > 0) {
+            send(chatId, MarkdownV2.escape(PARTIAL_SEND_FAILED_MESSAGE.formatted(failed, sent.size())), false);
+        }
     }
 
-    private void sendPrivateMention(TelegramUserEntity user, User author, Chat chat) {
-        ChatEntity privateChat = user.getChats().stream()
-                .filter(userChat -> "private".equals(userChat.getType()))
-                .findFirst()
-                .orElse(null);
-        if (privateChat == null) {
-            log.debug("User {} private chat is unknown", user.getUserName());
-            return;
+    private void enqueuePrivateMentions(Message mention, List<MentionTarget> users, User author) {
+        String text = buildPrivateMentionText(author, mention.getChat());
+        List<MentionNotification> notifications = users.stream()
+                .filter(user -> user.privateChatId() != null)
+                .map(user -> new MentionNotification(mention.getChatId(), mention.getMessageId(), user.id(),
+                        user.privateChatId(), text))
+                .toList();
+        try {
+            mentionOutbox.enqueue(notifications);
+        } catch (DataAccessException e) {
+            log.error("Failed to enqueue {} private mentions in chat {}", notifications.size(), mention.getChatId(), e);
+        }
+    }
+
+    private List<MentionTarget> getChatAdmins(Chat chat, User excluded) {
+        List<User> admins = chatAdminCache.get(chat.getId());
+        if (admins == null) {
+            return List.of();
         }
 
-        SendMessage message = null;
+        Map<Long, MentionTarget> chatUsers = chatUserService.findAllByChatId(chat.getId())
+                .stream()
+                .collect(Collectors.toMap(MentionTarget::id, Function.identity()));
+        return admins.stream()
+                .filter(admin -> !admin.getIsBot() && !excluded.getId().equals(admin.getId()))
+                .map(admin -> new MentionTarget(admin.getId(), admin.getFirstName(), admin.getLastName(),
+                        admin.getUserName(), getPrivateChatId(admin, chatUsers.get(admin.getId()))))
+                .toList();
+    }
+
+    private Long getPrivateChatId(User admin, MentionTarget user) {
+        return user == null ? chatUserService.findPrivateChatId(admin.getId()) : user.privateChatId();
+    }
+
+    private List<User> loadChatAdmins(Long chatId) {
         try {
-            log.debug("Sending private message to user {}", user.getUserName());
+            apiRateLimiter.acquire();
+            return execute(new GetChatAdministrators(String.valueOf(chatId)))
+                    .stream()
+                    .map(ChatMember::getUser)
+                    .toList();
+        } catch (TelegramApiException e) {
+            log.warn("Failed to get administrators of chat {}: {}", chatId, e.getMessage());
+            return null;
+        }
+    }
 
-            message = SendMessage.builder()
-                    .chatId(privateChat.getId())
-                    .text(buildPrivateMentionText(author, chat))
-                    .parseMode(PARSE_MODE)
-                    .disableWebPagePreview(true)
-                    .disableNotification(false)
-                    .build();
+    private List<MentionTarget> getChatUsers(Chat chat, User excluded) {
+        return chatUserService.findAllByChatId(chat.getId())
+                .stream()
+                .filter(user -> !excluded.getId().equals(user.id()))
+                .toList();
+    }
 
-            execute(message);
-        } catch (Exception exception) {
-            log.error("Failed to send message to private chat {} of user {}. Message:\n{}",
-                    privateChat.getId(), user.getUserName(), message, exception);
+    private CompletableFuture<Message> reply(Long chatId, String text, Integer replyToMessageId, boolean notifyIsCaseOfError) {
+        if (!ensureLastMentionsLimit(chatId, replyToMessageId, notifyIsCaseOfError)) {
+            return CompletableFuture.completedFuture(null);
         }
+
+        SendMessage message = SendMessage.builder()
+                .chatId(chatId)
+                .text(text)
+                .replyToMessageId(replyToMessageId)
+                .parseMode(PARSE_MODE)
+                .disableWebPagePreview(true)
+                .disableNotification(false)
+                .build();
+
+        return outboundScheduler.submit(chatId, OutboundScheduler.Priority.GROUP_REPLY, message)
+                .exceptionallyCompose(throwable -> {
+                    Throwable e = unwrap(throwable);
+                    if (isMessageDeleted(e)) {
+                        return send(chatId, text, notifyIsCaseOfError);
+                    }
+                    log.error(e.getMessage(), e);
+                    return notifyIsCaseOfError
+                            ? send(chatId, MarkdownV2.escape(SEND_FAILED_MESSAGE), false)
+                            : CompletableFuture.completedFuture(null);
+                });
+    }
+
+    public CompletableFuture<Message> sendPrivateMessage(Long privateChatId, String text) {
+        SendMessage message = SendMessage.builder()
+                .chatId(privateChatId)
+                .text(text)
+                .parseMode(PARSE_MODE)
+                .disableWebPagePreview(true)
+                .disableNotification(false)
+                .build();
+        return outboundScheduler.submit(privateChatId, OutboundScheduler.Priority.PRIVATE_MESSAGE, message);
     }
 
     private static String buildPrivateMentionText(User author, Chat chat) {
-        String text = String.format("Вас упомянул пользователь %s в чате %s", getFullName(author), chat.getTitle());
-        return escapeMarkdownV2(text);
+        String text = String.format("Вас упомянул пользователь %s в чате %s", MentionRenderer.getFullName(author.getFirstName(), author.getLastName()), chat.getTitle());
+        return MarkdownV2.escape(text);
     }
 
     private boolean ensureLastMentionsLimit(Long chatId, Integer replyToMessageId, boolean notifyIsCaseOfError) {
-        if (!lastMentions.containsKey(chatId)) {
-            lastMentions.put(chatId, new ArrayList<>());
-        }
-        Instant now = Instant.now();
-        List<Instant> mentions = lastMentions.get(chatId).stream()
-                .filter(instant -> instant.isAfter(now.minus(LAST_MENTIONS_DURATION)))
-                .collect(Collectors.toCollection(ArrayList::new));
-        lastMentions.put(chatId, mentions);
-        if (mentions.size() >= LAST_MENTIONS_LIMIT) {
+        if (!floodLimiter.tryAcquire(chatId)) {
+            botMetrics.recordFloodRejection();
             SendMessage message = SendMessage.builder()
                     .chatId(chatId)
-                    .text(escapeMarkdownV2(LAST_MENTIONS_LIMIT_MESSAGE))
+                    .text(MarkdownV2.escape(LAST_MENTIONS_LIMIT_MESSAGE))
                     .parseMode(PARSE_MODE)
                     .replyToMessageId(replyToMessageId)
                     .disableWebPagePreview(true)
                     .disableNotification(false)
                     .build();
-            try {
-                execute(message);
-            } catch (TelegramApiException e) {
-                log.error(e.getMessage(), e);
-                if (e.getMessage() == null || !e.getMessage().contains(MESSAGE_DELETED_ERROR)
-                        && notifyIsCaseOfError) {
-                    send(chatId, escapeMarkdownV2(SEND_FAILED_MESSAGE), false);
-                }
-            }
+            outboundScheduler.submit(chatId, OutboundScheduler.Priority.GROUP_REPLY, message)
+                    .exceptionallyCompose(throwable -> {
+                        Throwable e = unwrap(throwable);
+                        log.error(e.getMessage(), e);
+                        return !isMessageDeleted(e) && notifyIsCaseOfError
+                                ? send(chatId, MarkdownV2.escape(SEND_FAILED_MESSAGE), false)
+                                : CompletableFuture.completedFuture(null);
+                    });
             return false;
         }
 
-        lastMentions.get(chatId).add(now);
         return true;
     }
 
-    private void send(Long chatId, String text, boolean notifyIsCaseOfError) {
+    private CompletableFuture<Message> send(Long chatId, String text, boolean notifyIsCaseOfError) {
         SendMessage message = SendMessage.builder()
                 .chatId(chatId)
                 .text(text)
@@ -264,56 +504,46 @@ public class Bot extends TelegramLongPollingBot {
                 .disableNotification(false)
                 .build();
 
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            log.error(e.getMessage(), e);
-            if (notifyIsCaseOfError) {
-                send(chatId, SEND_FAILED_MESSAGE, false);
-            }
-        }
-    }
-
-    private String getMessageText(Collection<TelegramUserEntity> users) {
-        return users.stream()
-                .map(Bot::getMentionString)
-                .collect(Collectors.joining(" "));
+        return outboundScheduler.submit(chatId, OutboundScheduler.Priority.GROUP_REPLY, message)
+                .exceptionallyCompose(throwable -> {
+                    Throwable e = unwrap(throwable);
+                    log.error(e.getMessage(), e);
+                    return notifyIsCaseOfError
+                            ? send(chatId, MarkdownV2.escape(SEND_FAILED_MESSAGE), false)
+                            : CompletableFuture.completedFuture(null);
+                });
     }
 
-    private static String getMentionString(TelegramUserEntity user) {
-        String name = getFullName(user);
-        String escapedName = escapeMarkdownV2(name);
-        return "[" + escapedName + "](tg://user?id=" + user.getId() + ")";
+    private static boolean isMessageDeleted(Throwable e) {
+        return e.getMessage() != null && e.getMessage().contains(MESSAGE_DELETED_ERROR);
     }
 
-    private static String getFullName(User user) {
-        return user.getLastName() == null
-                ? user.getFirstName()
-                : user.getFirstName() + " " + user.getLastName();
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
     }
 
-    private static String getFullName(TelegramUserEntity user) {
-        return user.getLastName() == null
-                ? user.getFirstName()
-                : user.getFirstName() + " " + user.getLastName();
+    public boolean isUserGroupMember(Long chatId, @NonNull Long userId, Set<String> memberStatuses) {
+        ChatMember member = getChatMember(chatId, userId);
+        return member != null && memberStatuses.contains(member.getStatus());
     }
 
-    private static String escapeMarkdownV2(String text) {
-        return text.replaceAll("([_*\\[\\]()~`>#+\\-=|{}.!])", "\\\\$1");
+    public Optional<Boolean> checkMembership(Long chatId, @NonNull Long userId) {
+        return Optional.ofNullable(getChatMember(chatId, userId)).map(Bot::isPresent);
     }
 
-    public boolean isUserGroupMember(Long chatId, @NonNull Long userId, Set<String> memberStatuses) {
+    private ChatMember getChatMember(Long chatId, @NonNull Long userId) {
         GetChatMember getChatMember = new GetChatMember();
         getChatMember.setChatId(String.valueOf(chatId));
         getChatMember.setUserId(userId);
 
         try {
-            ChatMember chatMember = execute(getChatMember);
-            String status = chatMember.getStatus();
-            return memberStatuses.contains(status);
+            apiRateLimiter.acquire();
+            return execute(getChatMember);
         } catch (TelegramApiException e) {
             log.warn("Failed to check user {} in chat {}: {}", userId, chatId, e.getMessage());
-            return false;
+            return null;
         }
     }
 
@@ -0,0 +1,148 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.concurrent.TimeUnit;
+
+public class BotMetrics {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+
+    private final MeterRegistry registry;
+    private final Counter floodRejections;
+    private final Counter staleMessages;
+
+    public BotMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.floodRejections = Counter.builder("bot.flood.rejections")
+                .description("Mention requests rejected by the flood limiter")
+                .register(registry);
+        this.staleMessages = Counter.builder("bot.updates.stale")
+                .description("Messages whose mention handling was skipped because they are older than the reply timeout")
+                .register(registry);
+    }
+
+    public void monitorOutbound(OutboundScheduler scheduler) {
+        Gauge.builder("bot.outbound.queue.depth", scheduler, OutboundScheduler::getQueueDepth)
+                .description("Outgoing messages waiting in the outbound scheduler")
+                .register(registry);
+        TimeGauge.builder("bot.outbound.lag", scheduler, TimeUnit.NANOSECONDS,
+                        outbound -> outbound.getLag().toNanos())
+                .description("Age of the oldest outgoing message waiting in the outbound scheduler")
+                .register(registry);
+        TimeGauge.builder("bot.outbound.dispatch.lag", scheduler, TimeUnit.NANOSECONDS,
+                        outbound -> outbound.getLastDispatchLag().toNanos())
+                .description("Time the last dispatched outgoing message spent waiting in the outbound scheduler")
+                .register(registry);
+    }
+
+    public void recordUpdate(Update update, long elapsedNanos) {
+        Timer.builder("bot.updates")
+                .description("Update handling latency")
+                .tag("type", getUpdateType(update))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordApiCall(String method, TelegramApiException exception, long elapsedNanos) {
+        Timer.builder("bot.telegram.api")
+                .description("Telegram Bot API call latency")
+                .tag("method", method)
+                .tag("outcome", getOutcome(exception))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFanOut(MentionCommand command, int size) {
+        DistributionSummary.builder("bot.mentions.fanout.size")
+                .description("Number of users mentioned per command")
+                .tag("command", command.name().toLowerCase())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(10_000.0)
+                .register(registry)
+                .record(size);
+    }
+
+    public void recordMentionChunks(int sent, int failed) {
+        mentionChunks("sent").increment(sent);
+        mentionChunks("failed").increment(failed);
+    }
+
+    private Counter mentionChunks(String outcome) {
+        return Counter.builder("bot.mentions.chunks")
+                .description("Mention messages sent for /all and /admins, one per roster chunk")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    public void recordFirstUpdate(long uptimeMillis) {
+        Timer.builder("bot.startup.first.update")
+                .description("Time from JVM start until the first update was handled")
+                .register(registry)
+                .record(uptimeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordCatchUp(long drainNanos, int replayed, int expired) {
+        Timer.builder("bot.catchup.duration")
+                .description("Time from start until the first live update after draining the update backlog")
+                .register(registry)
+                .record(drainNanos, TimeUnit.NANOSECONDS);
+        catchUpUpdates("replayed").increment(replayed);
+        catchUpUpdates("expired").increment(expired);
+    }
+
+    private Counter catchUpUpdates(String outcome) {
+        return Counter.builder("bot.catchup.updates")
+                .description("Backlog updates handled before the bot caught up with live traffic")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    public void recordFloodRejection() {
+        floodRejections.increment();
+    }
+
+    public void recordStaleMessage() {
+        staleMessages.increment();
+    }
+
+    private static String getUpdateType(Update update) {
+        if (update.hasMessage()) {
+            return "message";
+        }
+        if (update.hasMyChatMember()) {
+            return "my_chat_member";
+        }
+        if (update.hasChatMember()) {
+            return "chat_member";
+        }
+        return "other";
+    }
+
+    private static String getOutcome(TelegramApiException exception) {
+        if (exception == null) {
+            return "success";
+        }
+        if (!(exception instanceof TelegramApiRequestException requestException) || requestException.getErrorCode() == null) {
+            return "network_error";
+        }
+        int errorCode = requestException.getErrorCode();
+        if (errorCode == TOO_MANY_REQUESTS) {
+            return "rate_limited";
+        }
+        return errorCode >= SERVER_ERROR ? "server_error" : "client_error";
+    }
+
+}
@@ -0,0 +1,88 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+public class CatchUpMonitor {
+
+    private final Duration liveThreshold;
+    private final BotMetrics botMetrics;
+    private final Runnable onCaughtUp;
+    private final long startNanos = System.nanoTime();
+    private final AtomicBoolean catchingUp = new AtomicBoolean(true);
+    private final AtomicBoolean handledAny = new AtomicBoolean();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private final AtomicInteger expired = new AtomicInteger();
+
+    public CatchUpMonitor(Duration liveThreshold, BotMetrics botMetrics, Runnable onCaughtUp) {
+        this.liveThreshold = liveThreshold;
+        this.botMetrics = botMetrics;
+        this.onCaughtUp = onCaughtUp;
+    }
+
+    public boolean isCatchingUp() {
+        return catchingUp.get();
+    }
+
+    public void record(Duration age, boolean isExpired) {
+        if (!catchingUp.get() || age == null) {
+            return;
+        }
+        if (age.compareTo(liveThreshold) > 0) {
+            backlog.incrementAndGet();
+            if (isExpired) {
+                expired.incrementAndGet();
+            }
+            return;
+        }
+        if (catchingUp.compareAndSet(true, false)) {
+            finish();
+        }
+    }
+
+    public void recordHandled() {
+        if (handledAny.compareAndSet(false, true)) {
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            botMetrics.recordFirstUpdate(uptime);
+            log.info("First update handled {} ms after JVM start", uptime);
+        }
+    }
+
+    private void finish() {
+        long drainNanos = System.nanoTime() - startNanos;
+        int backlogSize = backlog.get();
+        int expiredSize = expired.get();
+        try {
+            onCaughtUp.run();
+        } catch (RuntimeException e) {
+            log.error("Failed to flush memberships collected during catch-up", e);
+        }
+        botMetrics.recordCatchUp(drainNanos, backlogSize - expiredSize, expiredSize);
+        if (backlogSize > 0) {
+            log.info("Caught up with {} backlog updates ({} expired) in {} ms",
+                    backlogSize, expiredSize, drainNanos / 1_000_000);
+        } else {
+            log.debug("No update backlog after start, live in {} ms", drainNanos / 1_000_000);
+        }
+    }
+
+    public static Duration getAge(Update update) {
+        Integer date = null;
+        if (update.hasMessage()) {
+            date = update.getMessage().getDate();
+        } else if (update.hasMyChatMember()) {
+            date = update.getMyChatMember().getDate();
+        } else if (update.hasChatMember()) {
+            date = update.getChatMember().getDate();
+        }
+        return date == null ? null : Duration.between(Instant.ofEpochSecond(date), Instant.now());
+    }
+
+}
@@ -0,0 +1,32 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.List;
+import java.util.function.Function;
+
+public class ChatAdminCache {
+
+    private final Cache<Long, List<User>> admins;
+    private final Function<Long, List<User>> loader;
+
+    public ChatAdminCache(BotProperties.AdminCache properties, Function<Long, List<User>> loader) {
+        this.admins = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+        this.loader = loader;
+    }
+
+    public List<User> get(Long chatId) {
+        return admins.get(chatId, loader);
+    }
+
+    public void invalidate(Long chatId) {
+        admins.invalidate(chatId);
+    }
+
+}
@@ -0,0 +1,7 @@
+package kg.obukhov.wakethemallbot.bot;
+
+public interface ChatRateLimiter {
+
+    boolean tryAcquire(Long chatId);
+
+}
@@ -0,0 +1,79 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.MessageEntity;
+
+import java.util.*;
+
+public class CommandDetector {
+
+    private static final List<String> MENTION_ALL_COMMANDS = List.of("/all", "@all", "/everyone", "@everyone", "@ёу");
+    private static final List<String> MENTION_ADMIN_COMMANDS = List.of("/admins", "@admins", "/administrators", "@administrators");
+    private static final String BOT_COMMAND_ENTITY = "bot_command";
+    private static final String MENTION_ENTITY = "mention";
+
+    private final TriggerMatcher defaultMatcher;
+    private final Map<Long, TriggerMatcher> chatMatchers = new HashMap<>();
+
+    public CommandDetector(BotProperties.Triggers properties) {
+        this.defaultMatcher = new TriggerMatcher(getTriggers(List.of(), List.of()));
+        properties.getChats().forEach((chatId, triggers) -> chatMatchers.put(chatId,
+                new TriggerMatcher(getTriggers(triggers.getAll(), triggers.getAdmins()))));
+    }
+
+    public MentionCommand detect(Message message) {
+        String text = message.getText();
+        if (text == null) {
+            return null;
+        }
+
+        TriggerMatcher matcher = chatMatchers.getOrDefault(message.getChatId(), defaultMatcher);
+        MentionCommand command = detectInEntities(matcher, text, message.getEntities());
+        return command != null ? command : matcher.find(text);
+    }
+
+    private static MentionCommand detectInEntities(TriggerMatcher matcher, String text, List<MessageEntity> entities) {
+        if (entities == null) {
+            return null;
+        }
+
+        MentionCommand found = null;
+        for (int i = 0; i < entities.size(); i++) {
+            MessageEntity entity = entities.get(i);
+            boolean command = BOT_COMMAND_ENTITY.equals(entity.getType());
+            if (!command && !MENTION_ENTITY.equals(entity.getType())) {
+                continue;
+            }
+
+            int from = entity.getOffset();
+            int to = Math.min(from + entity.getLength(), text.length());
+            if (command) {
+                int botNameStart = text.indexOf('@', from + 1);
+                if (botNameStart > 0 && botNameStart < to) {
+                    to = botNameStart;
+                }
+            }
+
+            MentionCommand entityCommand = matcher.matchExactly(text, from, to);
+            if (entityCommand != null && (found == null || entityCommand.ordinal() < found.ordinal())) {
+                found = entityCommand;
+            }
+        }
+        return found;
+    }
+
+    private static Map<MentionCommand, List<String>> getTriggers(List<String> all, List<String> admins) {
+        Map<MentionCommand, List<String>> triggers = new EnumMap<>(MentionCommand.class);
+        triggers.put(MentionCommand.ALL, concat(MENTION_ALL_COMMANDS, all));
+        triggers.put(MentionCommand.ADMINS, concat(MENTION_ADMIN_COMMANDS, admins));
+        return triggers;
+    }
+
+    private static List<String> concat(List<String> defaults, List<String> custom) {
+        List<String> triggers = new ArrayList<>(defaults);
+        triggers.addAll(custom);
+        return triggers;
+    }
+
+}
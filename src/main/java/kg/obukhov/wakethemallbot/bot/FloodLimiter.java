@@ -0,0 +1,105 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.config.BotProperties;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class FloodLimiter implements ChatRateLimiter {
+
+    private static final long ORIGIN_NANOS = System.nanoTime();
+    private static final long RETIRED = Long.MIN_VALUE;
+    private static final long FRESH = Long.MIN_VALUE + 1;
+
+    private final BotProperties.Flood properties;
+    private final LongSupplier nanoClock;
+    private final long sweepIntervalNanos;
+    private final Map<Long, ChatState> states = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweepNanos;
+
+    public FloodLimiter(BotProperties.Flood properties) {
+        this(properties, () -> System.nanoTime() - ORIGIN_NANOS);
+    }
+
+    public FloodLimiter(BotProperties.Flood properties, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        this.sweepIntervalNanos = properties.getSweepInterval().toNanos();
+        this.lastSweepNanos = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    @Override
+    public boolean tryAcquire(Long chatId) {
+        long now = nanoClock.getAsLong();
+        sweepIfDue(now);
+
+        while (true) {
+            ChatState state = states.get(chatId);
+            if (state == null) {
+                state = states.computeIfAbsent(chatId, this::newState);
+            }
+
+            long theoreticalArrival = state.theoreticalArrival.get();
+            if (theoreticalArrival == RETIRED) {
+                states.remove(chatId, state);
+                continue;
+            }
+
+            long start = Math.max(theoreticalArrival, now);
+            if (start - now > state.toleranceNanos) {
+                return false;
+            }
+            if (state.theoreticalArrival.compareAndSet(theoreticalArrival, start + state.intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    public int size() {
+        return states.size();
+    }
+
+    public void evictIdle() {
+        evictIdle(nanoClock.getAsLong());
+    }
+
+    private void sweepIfDue(long now) {
+        long lastSweep = lastSweepNanos.get();
+        if (now - lastSweep >= sweepIntervalNanos && lastSweepNanos.compareAndSet(lastSweep, now)) {
+            evictIdle(now);
+        }
+    }
+
+    private void evictIdle(long now) {
+        states.forEach((chatId, state) -> {
+            long theoreticalArrival = state.theoreticalArrival.get();
+            if (theoreticalArrival != RETIRED && theoreticalArrival <= now
+                    && state.theoreticalArrival.compareAndSet(theoreticalArrival, RETIRED)) {
+                states.remove(chatId, state);
+            }
+        });
+    }
+
+    private ChatState newState(Long chatId) {
+        BotProperties.Flood.Limit limit = properties.getChats().getOrDefault(chatId, properties.getDefaults());
+        long intervalNanos = limit.getDuration().toNanos() / limit.getLimit();
+        long toleranceNanos = limit.getDuration().toNanos() - intervalNanos;
+        return new ChatState(intervalNanos, toleranceNanos);
+    }
+
+    private static final class ChatState {
+
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final AtomicLong theoreticalArrival = new AtomicLong(FRESH);
+
+        private ChatState(long intervalNanos, long toleranceNanos) {
+            this.intervalNanos = intervalNanos;
+            this.toleranceNanos = toleranceNanos;
+        }
+
+    }
+
+}
@@ -0,0 +1,57 @@
+package kg.obukhov.wakethemallbot.bot;
+
+public final class MarkdownV2 {
+
+    private static final String SPECIAL_CHARACTERS = "_*[]()~`>#+-=|{}.!\\";
+    private static final boolean[] SPECIAL = new boolean[128];
+
+    static {
+        for (int i = 0; i < SPECIAL_CHARACTERS.length(); i++) {
+            SPECIAL[SPECIAL_CHARACTERS.charAt(i)] = true;
+        }
+    }
+
+    private MarkdownV2() {
+    }
+
+    public static String escape(String text) {
+        int firstSpecial = indexOfSpecial(text);
+        if (firstSpecial < 0) {
+            return text;
+        }
+
+        StringBuilder builder = new StringBuilder(text.length() + 16);
+        builder.append(text, 0, firstSpecial);
+        appendEscaped(builder, text, firstSpecial);
+        return builder.toString();
+    }
+
+    public static StringBuilder appendEscaped(StringBuilder builder, String text) {
+        return appendEscaped(builder, text, 0);
+    }
+
+    private static StringBuilder appendEscaped(StringBuilder builder, String text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isSpecial(c)) {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        return builder;
+    }
+
+    private static int indexOfSpecial(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (isSpecial(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isSpecial(char c) {
+        return c < SPECIAL.length && SPECIAL[c];
+    }
+
+}
@@ -0,0 +1,6 @@
+package kg.obukhov.wakethemallbot.bot;
+
+public enum MentionCommand {
+    ALL,
+    ADMINS
+}
@@ -0,0 +1,170 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.model.MentionNotification;
+import kg.obukhov.wakethemallbot.service.ChatUserService;
+import kg.obukhov.wakethemallbot.service.MentionOutbox;
+import lombok.extern.slf4j.Slf4j;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+public class MentionOutboxWorker implements AutoCloseable {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+
+    private final Bot bot;
+    private final MentionOutbox mentionOutbox;
+    private final ChatUserService chatUserService;
+    private final BotProperties.Outbox properties;
+    private final boolean verifyMembers;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public MentionOutboxWorker(Bot bot, MentionOutbox mentionOutbox, ChatUserService chatUserService,
+                               BotProperties properties) {
+        this.bot = bot;
+        this.mentionOutbox = mentionOutbox;
+        this.chatUserService = chatUserService;
+        this.properties = properties.getOutbox();
+        this.verifyMembers = properties.getFanOut().isVerifyMembers();
+    }
+
+    public synchronized void start() {
+        running = true;
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            workers.add(Thread.ofPlatform()
+                    .name("mention-outbox-" + i)
+                    .daemon()
+                    .start(this::poll));
+        }
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                List<MentionNotification> batch = mentionOutbox.claim(properties.getBatchSize());
+                if (batch.isEmpty()) {
+                    mentionOutbox.awaitEnqueued(properties.getPollInterval());
+                } else {
+                    deliverAll(batch);
+                }
+            } catch (RuntimeException e) {
+                log.error("Mention outbox worker failed, retrying in {}", properties.getPollInterval(), e);
+                if (!pause()) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void deliverAll(List<MentionNotification> batch) {
+        Map<MentionNotification, CompletableFuture<Delivery>> deliveries = new LinkedHashMap<>();
+        batch.forEach(notification -> deliveries.put(notification, deliver(notification)));
+        CompletableFuture.allOf(deliveries.values().toArray(CompletableFuture[]::new)).join();
+
+        List<Long> sent = new ArrayList<>();
+        List<Long> discarded = new ArrayList<>();
+        List<MentionNotification> failed = new ArrayList<>();
+        deliveries.forEach((notification, delivery) -> {
+            switch (delivery.join()) {
+                case SENT -> sent.add(notification.id());
+                case DISCARDED -> discarded.add(notification.id());
+                case FAILED -> failed.add(notification);
+            }
+        });
+
+        mentionOutbox.complete(sent);
+        mentionOutbox.discard(discarded);
+        mentionOutbox.retry(failed);
+        log.debug("Delivered mention notifications: {} sent, {} discarded, {} failed",
+                sent.size(), discarded.size(), failed.size());
+    }
+
+    private CompletableFuture<Delivery> deliver(MentionNotification notification) {
+        if (!verifyMembers) {
+            return send(notification);
+        }
+        return CompletableFuture.supplyAsync(() -> bot.checkMembership(notification.chatId(), notification.userId()), executor)
+                .thenCompose(present -> {
+                    if (present.isEmpty()) {
+                        return CompletableFuture.completedFuture(Delivery.FAILED);
+                    }
+                    if (!present.get()) {
+                        chatUserService.removeUserFromChat(notification.userId(), notification.chatId());
+                        return CompletableFuture.completedFuture(Delivery.DISCARDED);
+                    }
+                    return send(notification);
+                })
+                .exceptionally(e -> {
+                    log.error("Failed to verify user {} in chat {}", notification.userId(), notification.chatId(), e);
+                    return Delivery.FAILED;
+                });
+    }
+
+    private CompletableFuture<Delivery> send(MentionNotification notification) {
+        return bot.sendPrivateMessage(notification.privateChatId(), notification.text())
+                .handle((message, throwable) -> {
+                    if (throwable == null) {
+                        return Delivery.SENT;
+                    }
+                    Throwable e = throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause()
+                            : throwable;
+                    log.warn("Failed to send mention to private chat {} of user {} (attempt {}): {}",
+                            notification.privateChatId(), notification.userId(), notification.attempts(), e.getMessage());
+                    return isRejected(e) ? Delivery.DISCARDED : Delivery.FAILED;
+                });
+    }
+
+    private static boolean isRejected(Throwable e) {
+        if (!(e instanceof TelegramApiRequestException requestException) || requestException.getErrorCode() == null) {
+            return false;
+        }
+        int errorCode = requestException.getErrorCode();
+        return errorCode != TOO_MANY_REQUESTS && errorCode < SERVER_ERROR;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.getPollInterval());
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        long deadline = System.nanoTime() + properties.getDrainTimeout().toNanos();
+        try {
+            for (Thread worker : workers) {
+                worker.join(Duration.ofNanos(Math.max(1, deadline - System.nanoTime())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        executor.close();
+    }
+
+    private enum Delivery {
+        SENT,
+        DISCARDED,
+        FAILED
+    }
+
+}
@@ -0,0 +1,106 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+public class MentionRenderer {
+
+    private static final String MENTION_LINK_PREFIX = "](tg://user?id=";
+    private static final char SEPARATOR = ' ';
+
+    private final Cache<Long, Fragment> fragments;
+
+    public MentionRenderer(BotProperties.MentionCache properties) {
+        this.fragments = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .build();
+    }
+
+    public String render(Collection<MentionTarget> users) {
+        String[] mentions = new String[users.size()];
+        int length = Math.max(0, mentions.length - 1);
+        int i = 0;
+        for (MentionTarget user : users) {
+            mentions[i] = getMention(user);
+            length += mentions[i].length();
+            i++;
+        }
+
+        StringBuilder text = new StringBuilder(length);
+        for (int j = 0; j < mentions.length; j++) {
+            if (j > 0) {
+                text.append(SEPARATOR);
+            }
+            text.append(mentions[j]);
+        }
+        return text.toString();
+    }
+
+    public List<String> renderChunks(Collection<MentionTarget> users, int maxLength, int maxMentions) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder(maxLength);
+        int mentions = 0;
+        for (MentionTarget user : users) {
+            String mention = getMention(user);
+            boolean full = mentions == maxMentions || chunk.length() + 1 + mention.length() > maxLength;
+            if (mentions > 0 && full) {
+                chunks.add(chunk.toString());
+                chunk.setLength(0);
+                mentions = 0;
+            }
+            if (mentions > 0) {
+                chunk.append(SEPARATOR);
+            }
+            chunk.append(mention);
+            mentions++;
+        }
+        if (mentions > 0) {
+            chunks.add(chunk.toString());
+        }
+        return chunks;
+    }
+
+    public String getMention(MentionTarget user) {
+        Fragment fragment = fragments.getIfPresent(user.id());
+        if (fragment == null || !fragment.matches(user)) {
+            fragment = new Fragment(user.firstName(), user.lastName(), buildMention(user));
+            fragments.put(user.id(), fragment);
+        }
+        return fragment.text();
+    }
+
+    public static String getFullName(String firstName, String lastName) {
+        return lastName == null ? firstName : firstName + " " + lastName;
+    }
+
+    private static String buildMention(MentionTarget user) {
+        int nameLength = user.firstName().length() + (user.lastName() == null ? 0 : user.lastName().length() + 1);
+        StringBuilder mention = new StringBuilder(nameLength + MENTION_LINK_PREFIX.length() + 24);
+        mention.append('[');
+        MarkdownV2.appendEscaped(mention, user.firstName());
+        if (user.lastName() != null) {
+            mention.append(' ');
+            MarkdownV2.appendEscaped(mention, user.lastName());
+        }
+        return mention.append(MENTION_LINK_PREFIX)
+                .append(user.id())
+                .append(')')
+                .toString();
+    }
+
+    private record Fragment(String firstName, String lastName, String text) {
+
+        private boolean matches(MentionTarget user) {
+            return Objects.equals(firstName, user.firstName()) && Objects.equals(lastName, user.lastName());
+        }
+
+    }
+
+}
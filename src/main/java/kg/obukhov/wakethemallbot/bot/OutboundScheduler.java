@@ -0,0 +1,300 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+public class OutboundScheduler implements AutoCloseable {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+
+    private final AbsSender sender;
+    private final BotProperties.Outbound properties;
+    private final TokenBucket globalBucket;
+    private final Map<Long, Lane> lanes = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread dispatcher;
+
+    private volatile boolean running = true;
+    private volatile long lastDispatchLagNanos;
+    private long sequence;
+
+    public OutboundScheduler(AbsSender sender, BotProperties.Outbound properties) {
+        this.sender = sender;
+        this.properties = properties;
+        this.globalBucket = new TokenBucket(properties.getGlobalPerSecond(), Duration.ofSeconds(1), properties.getGlobalPerSecond());
+        this.dispatcher = Thread.ofPlatform()
+                .name("outbound-dispatcher")
+                .daemon()
+                .start(this::dispatch);
+    }
+
+    public <T extends Serializable> CompletableFuture<T> submit(Long chatId, Priority priority, BotApiMethod<T> method) {
+        Task<T> task;
+        lock.lock();
+        try {
+            if (!running) {
+                return CompletableFuture.failedFuture(new CancellationException("Outbound scheduler is closed"));
+            }
+            task = new Task<>(sequence++, priority, method);
+            lanes.computeIfAbsent(chatId, this::newLane).tasks.addLast(task);
+            queueDepth.incrementAndGet();
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return task.future;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public Duration getLag() {
+        long now = System.nanoTime();
+        long oldest = now;
+        lock.lock();
+        try {
+            for (Lane lane : lanes.values()) {
+                Task<?> head = lane.tasks.peekFirst();
+                if (head != null && head.enqueuedNanos - oldest < 0) {
+                    oldest = head.enqueuedNanos;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return Duration.ofNanos(now - oldest);
+    }
+
+    public Duration getLastDispatchLag() {
+        return Duration.ofNanos(lastDispatchLagNanos);
+    }
+
+    private Lane newLane(Long chatId) {
+        TokenBucket chatBucket = new TokenBucket(properties.getChatPerSecond(), Duration.ofSeconds(1), 1);
+        TokenBucket groupBucket = chatId < 0
+                ? new TokenBucket(properties.getGroupPerMinute(), Duration.ofMinutes(1), properties.getGroupPerMinute())
+                : null;
+        return new Lane(chatBucket, groupBucket);
+    }
+
+    private void dispatch() {
+        lock.lock();
+        try {
+            while (running || queueDepth.get() > 0) {
+                long waitNanos = Long.MAX_VALUE;
+                Lane next = null;
+                Iterator<Lane> iterator = lanes.values().iterator();
+                while (iterator.hasNext()) {
+                    Lane lane = iterator.next();
+                    if (lane.isIdle()) {
+                        iterator.remove();
+                        continue;
+                    }
+                    if (lane.inFlight || lane.tasks.isEmpty()) {
+                        continue;
+                    }
+                    long laneWaitNanos = lane.nanosUntilReady();
+                    if (laneWaitNanos > 0) {
+                        waitNanos = Math.min(waitNanos, laneWaitNanos);
+                    } else if (next == null || lane.tasks.peekFirst().isBefore(next.tasks.peekFirst())) {
+                        next = lane;
+                    }
+                }
+
+                if (next != null) {
+                    waitNanos = globalBucket.nanosUntilAvailable();
+                }
+                if (next == null || waitNanos > 0) {
+                    if (waitNanos == Long.MAX_VALUE) {
+                        changed.await();
+                    } else {
+                        changed.awaitNanos(waitNanos);
+                    }
+                    continue;
+                }
+
+                globalBucket.tryAcquire();
+                next.consume();
+                Task<?> task = next.tasks.pollFirst();
+                next.inFlight = true;
+                queueDepth.decrementAndGet();
+                lastDispatchLagNanos = System.nanoTime() - task.enqueuedNanos;
+                Lane lane = next;
+                executor.execute(() -> execute(lane, task));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T extends Serializable> void execute(Lane lane, Task<T> task) {
+        boolean retry = false;
+        try {
+            task.future.complete(sender.execute(task.method));
+        } catch (TelegramApiException e) {
+            Duration backoff = getBackoff(e, task.attempts);
+            if (backoff != null && task.attempts < properties.getMaxRetries() && running) {
+                log.warn("Telegram request {} failed, retrying in {}: {}", task.method.getMethod(), backoff, e.getMessage());
+                task.attempts++;
+                lane.pause(backoff);
+                retry = true;
+            } else {
+                task.future.completeExceptionally(e);
+            }
+        } catch (RuntimeException e) {
+            task.future.completeExceptionally(e);
+        } finally {
+            lock.lock();
+            try {
+                lane.inFlight = false;
+                if (retry) {
+                    lane.tasks.addFirst(task);
+                    queueDepth.incrementAndGet();
+                }
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static Duration getBackoff(TelegramApiException exception, int attempts) {
+        if (!(exception instanceof TelegramApiRequestException requestException)) {
+            return Duration.ofSeconds(1L << attempts);
+        }
+        Integer errorCode = requestException.getErrorCode();
+        if (errorCode == null) {
+            return Duration.ofSeconds(1L << attempts);
+        }
+        if (errorCode == TOO_MANY_REQUESTS) {
+            Integer retryAfter = requestException.getParameters() == null
+                    ? null
+                    : requestException.getParameters().getRetryAfter();
+            return Duration.ofSeconds(retryAfter == null ? 1L << attempts : retryAfter);
+        }
+        return errorCode >= SERVER_ERROR ? Duration.ofSeconds(1L << attempts) : null;
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            running = false;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            dispatcher.join(properties.getDrainTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dispatcher.interrupt();
+
+        lock.lock();
+        try {
+            lanes.values().forEach(lane -> lane.tasks.forEach(task ->
+                    task.future.completeExceptionally(new CancellationException("Outbound scheduler is closed"))));
+            lanes.clear();
+            queueDepth.set(0);
+        } finally {
+            lock.unlock();
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(properties.getDrainTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public enum Priority {
+        GROUP_REPLY,
+        PRIVATE_MESSAGE
+    }
+
+    private static final class Task<T extends Serializable> {
+
+        private final long sequence;
+        private final Priority priority;
+        private final BotApiMethod<T> method;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long enqueuedNanos = System.nanoTime();
+        private int attempts;
+
+        private Task(long sequence, Priority priority, BotApiMethod<T> method) {
+            this.sequence = sequence;
+            this.priority = priority;
+            this.method = method;
+        }
+
+        private boolean isBefore(Task<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority < 0 || byPriority == 0 && sequence < other.sequence;
+        }
+
+    }
+
+    private static final class Lane {
+
+        private final Deque<Task<?>> tasks = new ArrayDeque<>();
+        private final TokenBucket chatBucket;
+        private final TokenBucket groupBucket;
+        private boolean inFlight;
+
+        private Lane(TokenBucket chatBucket, TokenBucket groupBucket) {
+            this.chatBucket = chatBucket;
+            this.groupBucket = groupBucket;
+        }
+
+        private long nanosUntilReady() {
+            long groupWaitNanos = groupBucket == null ? 0 : groupBucket.nanosUntilAvailable();
+            return Math.max(chatBucket.nanosUntilAvailable(), groupWaitNanos);
+        }
+
+        private void consume() {
+            chatBucket.tryAcquire();
+            if (groupBucket != null) {
+                groupBucket.tryAcquire();
+            }
+        }
+
+        private void pause(Duration duration) {
+            chatBucket.pause(duration);
+            if (groupBucket != null) {
+                groupBucket.pause(duration);
+            }
+        }
+
+        private boolean isIdle() {
+            return tasks.isEmpty() && !inFlight && chatBucket.isFull() && (groupBucket == null || groupBucket.isFull());
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.exception.StorageException;
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.repository.MembershipStore;
+import kg.obukhov.wakethemallbot.service.ChatUserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+public class RosterReconciler {
+
+    private final Bot bot;
+    private final ChatUserService chatUserService;
+    private final MembershipStore membershipStore;
+    private final BotProperties.Reconciliation properties;
+    private final TokenBucket budget;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public RosterReconciler(Bot bot, ChatUserService chatUserService, MembershipStore membershipStore,
+                            BotProperties.Reconciliation properties) {
+        this.bot = bot;
+        this.chatUserService = chatUserService;
+        this.membershipStore = membershipStore;
+        this.properties = properties;
+        this.budget = new TokenBucket(properties.getRequestsPerSecond(), Duration.ofSeconds(1), 1);
+    }
+
+    @Async
+    @Scheduled(initialDelayString = "${bot.reconciliation.interval:10m}", fixedDelayString = "${bot.reconciliation.interval:10m}")
+    public void reconcile() {
+        if (!properties.isEnabled() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<MembershipKey> memberships = membershipStore.findLeastRecentlyVerified(properties.getBatchSize());
+            List<MembershipKey> checked = new ArrayList<>();
+            List<MembershipKey> stale = new ArrayList<>();
+            int failed = 0;
+            for (MembershipKey membership : memberships) {
+                if (!budget.acquire()) {
+                    break;
+                }
+                Optional<Boolean> present = bot.checkMembership(membership.chatId(), membership.userId());
+                if (present.isEmpty()) {
+                    failed++;
+                    continue;
+                }
+                if (!present.get()) {
+                    stale.add(membership);
+                    continue;
+                }
+                checked.add(membership);
+            }
+
+            membershipStore.markVerified(checked);
+            chatUserService.removeMemberships(stale);
+            int removedChats = membershipStore.deleteEmptyChats();
+            log.info("Reconciled {} memberships: {} stale, {} checks failed, {} empty chats removed",
+                    memberships.size(), stale.size(), failed, removedChats);
+        } catch (DataAccessException | StorageException e) {
+            log.error("Roster reconciliation failed", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+}
@@ -0,0 +1,314 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.repository.ClusterRepository;
+import kg.obukhov.wakethemallbot.service.UpdateInbox;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BotSession;
+import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+public class ShardCoordinator implements AutoCloseable {
+
+    private static final int LOCK_NAMESPACE = 4_294_001;
+    private static final int POLLER_LOCK = -1;
+    private static final String TRY_LOCK = "SELECT pg_try_advisory_lock(?, ?)";
+    private static final String UNLOCK = "SELECT pg_advisory_unlock(?, ?)";
+    private static final String UNLOCK_ALL = "SELECT pg_advisory_unlock_all()";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final Bot bot;
+    private final UpdateInbox updateInbox;
+    private final ClusterRepository clusterRepository;
+    private final DataSource dataSource;
+    private final BotProperties.Cluster properties;
+    private final boolean polling;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Set<Integer> ownedShards = ConcurrentHashMap.newKeySet();
+    private final Queue<Long> handled = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile Connection lockConnection;
+    private volatile BotSession session;
+    private Thread consumer;
+    private volatile boolean running;
+
+    public ShardCoordinator(Bot bot, UpdateInbox updateInbox, ClusterRepository clusterRepository, DataSource dataSource,
+                            BotProperties properties, MeterRegistry meterRegistry) {
+        this.bot = bot;
+        this.updateInbox = updateInbox;
+        this.clusterRepository = clusterRepository;
+        this.dataSource = dataSource;
+        this.properties = properties.getCluster();
+        this.polling = properties.getMode() == BotProperties.Mode.POLLING;
+        meterRegistry.gauge("bot.cluster.shards.owned", ownedShards, Set::size);
+    }
+
+    public void start() {
+        running = true;
+        rebalance();
+        consumer = Thread.ofPlatform()
+                .name("update-inbox")
+                .daemon()
+                .start(this::consume);
+        log.info("Cluster node {} started", nodeId);
+    }
+
+    public Set<Integer> getOwnedShards() {
+        return Set.copyOf(ownedShards);
+    }
+
+    public boolean isPolling() {
+        return session != null && session.isRunning();
+    }
+
+    public boolean isConnected() {
+        return lockConnection != null;
+    }
+
+    @Scheduled(initialDelayString = "${bot.cluster.heartbeat-interval:5s}", fixedDelayString = "${bot.cluster.heartbeat-interval:5s}")
+    public void rebalance() {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            clusterRepository.heartbeat(nodeId);
+            updateInbox.renewClaims(nodeId);
+            int nodes = Math.max(1, clusterRepository.countLiveNodes(properties.getNodeTimeout()));
+            int target = Math.ceilDiv(properties.getShards(), nodes);
+
+            Connection connection = getLockConnection();
+            releaseExcessShards(connection, target);
+            acquireFreeShards(connection, target);
+            if (polling) {
+                ensurePolling(connection);
+            }
+            log.debug("Node {} owns shards {} of {} nodes", nodeId, ownedShards, nodes);
+        } catch (SQLException e) {
+            log.error("Lost lock connection of node {}", nodeId, e);
+            closeLockConnection();
+        } catch (DataAccessException e) {
+            log.error("Failed to send heartbeat of node {}", nodeId, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Connection getLockConnection() throws SQLException {
+        if (lockConnection != null && lockConnection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+            return lockConnection;
+        }
+        closeLockConnection();
+        lockConnection = dataSource.getConnection();
+        lockConnection.setAutoCommit(true);
+        return lockConnection;
+    }
+
+    private void releaseExcessShards(Connection connection, int target) throws SQLException {
+        List<Integer> excess = ownedShards.stream()
+                .sorted()
+                .skip(target)
+                .toList();
+        for (Integer shard : excess) {
+            ownedShards.remove(shard);
+            execute(connection, UNLOCK, shard);
+            log.info("Node {} released shard {}", nodeId, shard);
+        }
+    }
+
+    private void acquireFreeShards(Connection connection, int target) throws SQLException {
+        int shards = properties.getShards();
+        int offset = Math.floorMod(nodeId.hashCode(), shards);
+        for (int i = 0; i < shards && ownedShards.size() < target; i++) {
+            int shard = (offset + i) % shards;
+            if (!ownedShards.contains(shard) && execute(connection, TRY_LOCK, shard)) {
+                ownedShards.add(shard);
+                log.info("Node {} acquired shard {}", nodeId, shard);
+            }
+        }
+    }
+
+    private void ensurePolling(Connection connection) throws SQLException {
+        if (session != null) {
+            if (session.isRunning()) {
+                return;
+            }
+            session = null;
+            execute(connection, UNLOCK, POLLER_LOCK);
+        }
+        if (!execute(connection, TRY_LOCK, POLLER_LOCK)) {
+            return;
+        }
+        try {
+            session = new TelegramBotsApi(DefaultBotSession.class).registerBot(bot);
+            log.info("Node {} is polling for updates", nodeId);
+        } catch (TelegramApiException e) {
+            log.error("Node {} failed to start polling", nodeId, e);
+            execute(connection, UNLOCK, POLLER_LOCK);
+        }
+    }
+
+    private static boolean execute(Connection connection, String sql, int key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, LOCK_NAMESPACE);
+            statement.setInt(2, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private void closeLockConnection() {
+        ownedShards.clear();
+        stopPolling();
+        if (lockConnection == null) {
+            return;
+        }
+        try (Statement statement = lockConnection.createStatement()) {
+            statement.execute(UNLOCK_ALL);
+            lockConnection.close();
+        } catch (SQLException e) {
+            log.warn("Failed to release locks of node {}, dropping the connection: {}", nodeId, e.getMessage());
+            try {
+                lockConnection.abort(Runnable::run);
+            } catch (SQLException ignored) {
+                // the session is gone together with its locks
+            }
+        }
+        lockConnection = null;
+    }
+
+    private void stopPolling() {
+        if (session != null) {
+            session.stop();
+            session = null;
+            log.info("Node {} stopped polling for updates", nodeId);
+        }
+    }
+
+    private void consume() {
+        while (running) {
+            try {
+                List<Update> updates = ownedShards.isEmpty()
+                        ? List.of()
+                        : updateInbox.claim(nodeId, ownedShards, properties.getBatchSize());
+                if (updates.isEmpty()) {
+                    markHandled();
+                    updateInbox.awaitOffered(properties.getPollInterval());
+                    continue;
+                }
+                List<Long> rejected = dispatchAll(updates);
+                markHandled();
+                if (!rejected.isEmpty()) {
+                    updateInbox.release(rejected);
+                    log.warn("Node {} is saturated, released {} updates", nodeId, rejected.size());
+                    if (!pause()) {
+                        return;
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to claim updates of node {}", nodeId, e);
+                if (!pause()) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private List<Long> dispatchAll(List<Update> updates) {
+        UpdateDispatcher dispatcher = bot.getUpdateDispatcher();
+        for (int i = 0; i < updates.size(); i++) {
+            Long updateId = updates.get(i).getUpdateId().longValue();
+            if (!dispatcher.dispatch(updates.get(i), () -> handled.add(updateId))) {
+                return updates.subList(i, updates.size()).stream()
+                        .map(update -> update.getUpdateId().longValue())
+                        .toList();
+            }
+        }
+        return List.of();
+    }
+
+    private void markHandled() {
+        List<Long> updateIds = new ArrayList<>();
+        Long updateId;
+        while ((updateId = handled.poll()) != null) {
+            updateIds.add(updateId);
+        }
+        try {
+            updateInbox.markHandled(updateIds);
+        } catch (DataAccessException e) {
+            handled.addAll(updateIds);
+            throw e;
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.getPollInterval());
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            running = false;
+            stopPolling();
+        } finally {
+            lock.unlock();
+        }
+
+        if (consumer != null) {
+            try {
+                consumer.join(properties.getHeartbeatInterval());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            consumer.interrupt();
+        }
+
+        try {
+            markHandled();
+        } catch (DataAccessException e) {
+            log.warn("Failed to mark updates handled by node {}: {}", nodeId, e.getMessage());
+        }
+
+        lock.lock();
+        try {
+            closeLockConnection();
+            clusterRepository.deleteNode(nodeId);
+        } catch (DataAccessException e) {
+            log.warn("Failed to deregister node {}: {}", nodeId, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
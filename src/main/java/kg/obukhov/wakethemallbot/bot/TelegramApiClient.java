@@ -0,0 +1,61 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+public class TelegramApiClient implements AutoCloseable {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(75);
+
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public TelegramApiClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+    }
+
+    public <T extends Serializable> T execute(BotApiMethod<T> method) throws TelegramApiException {
+        method.validate();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + method.getMethod()))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(method)))
+                .build();
+        try {
+            return method.deserializeResponse(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        } catch (IOException e) {
+            throw new TelegramApiException("Unable to execute " + method.getMethod() + " method", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TelegramApiException("Interrupted while executing " + method.getMethod() + " method", e);
+        }
+    }
+
+    private String toJson(BotApiMethod<?> method) throws TelegramApiException {
+        try {
+            return objectMapper.writeValueAsString(method);
+        } catch (JsonProcessingException e) {
+            throw new TelegramApiException("Unable to serialize " + method.getMethod() + " method", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        httpClient.close();
+    }
+
+}
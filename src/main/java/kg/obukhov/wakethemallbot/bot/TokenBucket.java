@@ -0,0 +1,70 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+public class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final LongSupplier nanoClock;
+
+    // theoretical arrival time of the next token, as in GCRA
+    private long nextTokenNanos;
+
+    public TokenBucket(int tokens, Duration period, int burst) {
+        this(tokens, period, burst, System::nanoTime);
+    }
+
+    public TokenBucket(int tokens, Duration period, int burst, LongSupplier nanoClock) {
+        this.nanosPerToken = period.toNanos() / tokens;
+        this.burstNanos = nanosPerToken * (Math.max(burst, 1) - 1);
+        this.nanoClock = nanoClock;
+        this.nextTokenNanos = nanoClock.getAsLong();
+    }
+
+    public synchronized boolean tryAcquire() {
+        long now = nanoClock.getAsLong();
+        if (nextTokenNanos - burstNanos - now > 0) {
+            return false;
+        }
+        nextTokenNanos = Math.max(nextTokenNanos, now) + nanosPerToken;
+        return true;
+    }
+
+    public boolean acquire() {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public synchronized long nanosUntilAvailable() {
+        return Math.max(0, nextTokenNanos - burstNanos - nanoClock.getAsLong());
+    }
+
+    public synchronized boolean isFull() {
+        return nextTokenNanos - nanoClock.getAsLong() <= 0;
+    }
+
+    public synchronized void pause(Duration duration) {
+        long resumeNanos = nanoClock.getAsLong() + duration.toNanos();
+        nextTokenNanos = Math.max(nextTokenNanos, resumeNanos + burstNanos);
+    }
+
+    private synchronized long reserve() {
+        long now = nanoClock.getAsLong();
+        long waitNanos = nextTokenNanos - burstNanos - now;
+        nextTokenNanos = Math.max(nextTokenNanos, now) + nanosPerToken;
+        return waitNanos;
+    }
+
+}
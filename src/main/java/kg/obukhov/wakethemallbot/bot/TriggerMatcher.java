@@ -0,0 +1,170 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import java.util.*;
+
+public class TriggerMatcher {
+
+    private static final int ROOT = 0;
+    private static final int[] NO_OUTPUTS = {};
+
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] failures;
+    private final int[][] outputs;
+    private final MentionCommand[] exactCommands;
+    private final int[] patternLengths;
+    private final MentionCommand[] patternCommands;
+
+    public TriggerMatcher(Map<MentionCommand, ? extends Collection<String>> triggers) {
+        List<String> patterns = new ArrayList<>();
+        List<MentionCommand> commands = new ArrayList<>();
+        triggers.forEach((command, words) -> words.forEach(word -> {
+            patterns.add(fold(word));
+            commands.add(command);
+        }));
+
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(new Node());
+        for (int p = 0; p < patterns.size(); p++) {
+            Node node = nodes.get(ROOT);
+            for (char c : patterns.get(p).toCharArray()) {
+                Integer target = node.children.get(c);
+                if (target == null) {
+                    target = nodes.size();
+                    node.children.put(c, target);
+                    nodes.add(new Node());
+                }
+                node = nodes.get(target);
+            }
+            node.outputs.add(p);
+            node.exactCommand = higherPriority(node.exactCommand, commands.get(p));
+        }
+
+        this.patternLengths = patterns.stream().mapToInt(String::length).toArray();
+        this.patternCommands = commands.toArray(MentionCommand[]::new);
+        this.keys = new char[nodes.size()][];
+        this.targets = new int[nodes.size()][];
+        this.failures = new int[nodes.size()];
+        this.outputs = new int[nodes.size()][];
+        this.exactCommands = new MentionCommand[nodes.size()];
+        compile(nodes);
+    }
+
+    public MentionCommand find(String text) {
+        if (text == null) {
+            return null;
+        }
+
+        MentionCommand found = null;
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, fold(text.charAt(i)));
+            for (int pattern : outputs[state]) {
+                int start = i - patternLengths[pattern] + 1;
+                if (isBoundary(text, start - 1) && isBoundary(text, i + 1)) {
+                    found = higherPriority(found, patternCommands[pattern]);
+                    if (found.ordinal() == 0) {
+                        return found;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    public MentionCommand matchExactly(String text, int from, int to) {
+        int state = ROOT;
+        for (int i = from; i < to; i++) {
+            int index = Arrays.binarySearch(keys[state], fold(text.charAt(i)));
+            if (index < 0) {
+                return null;
+            }
+            state = targets[state][index];
+        }
+        return exactCommands[state];
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            int index = Arrays.binarySearch(keys[state], c);
+            if (index >= 0) {
+                return targets[state][index];
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failures[state];
+        }
+    }
+
+    private void compile(List<Node> nodes) {
+        for (int state = 0; state < nodes.size(); state++) {
+            Node node = nodes.get(state);
+            keys[state] = new char[node.children.size()];
+            targets[state] = new int[node.children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> child : node.children.entrySet()) {
+                keys[state][i] = child.getKey();
+                targets[state][i] = child.getValue();
+                i++;
+            }
+            exactCommands[state] = node.exactCommand;
+        }
+
+        Deque<Integer> queue = new ArrayDeque<>();
+        outputs[ROOT] = NO_OUTPUTS;
+        for (int child : targets[ROOT]) {
+            failures[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            Set<Integer> stateOutputs = new LinkedHashSet<>(nodes.get(state).outputs);
+            for (int output : outputs[failures[state]]) {
+                stateOutputs.add(output);
+            }
+            outputs[state] = stateOutputs.isEmpty()
+                    ? NO_OUTPUTS
+                    : stateOutputs.stream().mapToInt(Integer::intValue).toArray();
+
+            for (int i = 0; i < keys[state].length; i++) {
+                int child = targets[state][i];
+                failures[child] = state == ROOT ? ROOT : step(failures[state], keys[state][i]);
+                queue.add(child);
+            }
+        }
+    }
+
+    private static MentionCommand higherPriority(MentionCommand current, MentionCommand candidate) {
+        return current == null || candidate.ordinal() < current.ordinal() ? candidate : current;
+    }
+
+    private static boolean isBoundary(String text, int index) {
+        if (index < 0 || index >= text.length()) {
+            return true;
+        }
+        char c = text.charAt(index);
+        return !Character.isLetterOrDigit(c) && c != '_';
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    private static String fold(String text) {
+        StringBuilder folded = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            folded.append(fold(text.charAt(i)));
+        }
+        return folded.toString();
+    }
+
+    private static final class Node {
+
+        private final SortedMap<Character, Integer> children = new TreeMap<>();
+        private final List<Integer> outputs = new ArrayList<>();
+        private MentionCommand exactCommand;
+
+    }
+
+}
@@ -0,0 +1,222 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+@Slf4j
+public class UpdateDispatcher implements AutoCloseable {
+
+    private static final Long NO_CHAT = 0L;
+    private static final Duration LANE_WAIT = Duration.ofMillis(100);
+    private static final Runnable NO_CALLBACK = () -> {
+    };
+
+    private final Consumer<Update> handler;
+    private final BotProperties.Dispatch properties;
+    private final Semaphore capacity;
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ReentrantLock laneLock = new ReentrantLock();
+    private final Condition laneFreed = laneLock.newCondition();
+    private volatile int laneWaiters;
+
+    private volatile boolean accepting = true;
+
+    public UpdateDispatcher(Consumer<Update> handler, BotProperties.Dispatch properties) {
+        this.handler = handler;
+        this.properties = properties;
+        this.capacity = new Semaphore(properties.getCapacity());
+    }
+
+    public boolean dispatch(Update update) {
+        return dispatch(update, NO_CALLBACK);
+    }
+
+    public boolean dispatch(Update update, Runnable onHandled) {
+        if (!accepting) {
+            log.warn("Dispatcher is closed, dropping update {}", update.getUpdateId());
+            return false;
+        }
+
+        try {
+            if (!capacity.tryAcquire(properties.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.error("Update queue is full, dropping update {}", update.getUpdateId());
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        Long chatId = getChatId(update);
+        if (!enqueue(chatId, new Dispatched(update, onHandled))) {
+            capacity.release();
+            log.error("Update queue of chat {} is full, dropping update {}", chatId, update.getUpdateId());
+            return false;
+        }
+        return true;
+    }
+
+    public boolean submit(Update update) {
+        if (!accepting) {
+            log.warn("Dispatcher is closed, dropping update {}", update.getUpdateId());
+            return false;
+        }
+
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        Long chatId = getChatId(update);
+        Dispatched dispatched = new Dispatched(update, NO_CALLBACK);
+        try {
+            while (!enqueue(chatId, dispatched)) {
+                if (!accepting) {
+                    capacity.release();
+                    log.warn("Dispatcher is closed, dropping update {}", update.getUpdateId());
+                    return false;
+                }
+                awaitLaneSpace();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            capacity.release();
+            return false;
+        }
+    }
+
+    private boolean enqueue(Long chatId, Dispatched dispatched) {
+        boolean[] accepted = new boolean[1];
+        lanes.compute(chatId, (id, lane) -> {
+            Lane target = lane == null ? new Lane() : lane;
+            if (target.updates.size() >= properties.getLaneCapacity()) {
+                return lane;
+            }
+            target.updates.add(dispatched);
+            accepted[0] = true;
+            if (!target.running) {
+                target.running = true;
+                executor.execute(() -> drain(id));
+            }
+            return target;
+        });
+        return accepted[0];
+    }
+
+    private void awaitLaneSpace() throws InterruptedException {
+        laneLock.lock();
+        try {
+            laneWaiters++;
+            laneFreed.await(LANE_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        } finally {
+            laneWaiters--;
+            laneLock.unlock();
+        }
+    }
+
+    public int getQueuedCount() {
+        return properties.getCapacity() - capacity.availablePermits();
+    }
+
+    public int getActiveLanes() {
+        return lanes.size();
+    }
+
+    private void drain(Long chatId) {
+        Dispatched dispatched;
+        while ((dispatched = next(chatId)) != null) {
+            signalLaneSpace();
+            try {
+                handler.accept(dispatched.update());
+            } catch (Exception e) {
+                log.error("Failed to handle update {}", dispatched.update().getUpdateId(), e);
+            } finally {
+                capacity.release();
+                dispatched.onHandled().run();
+            }
+        }
+    }
+
+    private void signalLaneSpace() {
+        if (laneWaiters == 0) {
+            return;
+        }
+        laneLock.lock();
+        try {
+            laneFreed.signalAll();
+        } finally {
+            laneLock.unlock();
+        }
+    }
+
+    private Dispatched next(Long chatId) {
+        Dispatched[] next = new Dispatched[1];
+        lanes.computeIfPresent(chatId, (id, lane) -> {
+            next[0] = lane.updates.poll();
+            return next[0] == null ? null : lane;
+        });
+        return next[0];
+    }
+
+    public static Long getChatId(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasEditedMessage()) {
+            return update.getEditedMessage().getChatId();
+        }
+        if (update.hasMyChatMember()) {
+            return update.getMyChatMember().getChat().getId();
+        }
+        if (update.hasChatMember()) {
+            return update.getChatMember().getChat().getId();
+        }
+        if (update.hasChatJoinRequest()) {
+            return update.getChatJoinRequest().getChat().getId();
+        }
+        return NO_CHAT;
+    }
+
+    @Override
+    public void close() {
+        accepting = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(properties.getDrainTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("{} updates were not handled before shutdown", getQueuedCount());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Lane {
+
+        private final Queue<Dispatched> updates = new ArrayDeque<>();
+        private boolean running;
+
+    }
+
+    private record Dispatched(Update update, Runnable onHandled) {
+    }
+
+}
@@ -2,20 +2,44 @@ package kg.obukhov.wakethemallbot.config;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import kg.obukhov.wakethemallbot.bot.Bot;
+import kg.obukhov.wakethemallbot.bot.ChatRateLimiter;
+import kg.obukhov.wakethemallbot.bot.FloodLimiter;
+import kg.obukhov.wakethemallbot.bot.MentionOutboxWorker;
+import kg.obukhov.wakethemallbot.bot.RosterReconciler;
+import kg.obukhov.wakethemallbot.bot.ShardCoordinator;
+import kg.obukhov.wakethemallbot.repository.ClusterRepository;
+import kg.obukhov.wakethemallbot.repository.MembershipStore;
 import kg.obukhov.wakethemallbot.service.ChatUserService;
+import kg.obukhov.wakethemallbot.service.MentionOutbox;
+import kg.obukhov.wakethemallbot.service.UpdateInbox;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BotSession;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import javax.sql.DataSource;
+import java.util.Optional;
+
 @Slf4j
 @EnableAsync
+@EnableScheduling
 @Configuration
 @ConfigurationPropertiesScan("kg.obukhov.wakethemallbot.config")
 @EntityScan("kg.obukhov.wakethemallbot.model")
@@ -27,18 +51,89 @@ public class BotConfiguration {
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
+    @Bean(destroyMethod = "close")
+    public Bot bot(ChatUserService chatUserService, MentionOutbox mentionOutbox, Optional<ChatRateLimiter> floodLimiter,
+                   Optional<UpdateInbox> updateInbox, BotProperties botProperties, MeterRegistry meterRegistry)
+            throws TelegramApiException {
+        Bot bot = new Bot(chatUserService, mentionOutbox,
+                floodLimiter.orElseGet(() -> new FloodLimiter(botProperties.getFlood())),
+                updateInbox.orElse(null), botProperties, meterRegistry);
+
+        if (botProperties.getMode() == BotProperties.Mode.WEBHOOK) {
+            BotProperties.Webhook webhook = botProperties.getWebhook();
+            if (StringUtils.isAnyBlank(webhook.getUrl(), webhook.getSecretToken())) {
+                throw new IllegalStateException("bot.webhook.url and bot.webhook.secret-token are required in webhook mode");
+            }
+            bot.registerWebhook(webhook);
+            log.info("Webhook registered at {}{}", webhook.getUrl(), webhook.getPath());
+        }
+
+        return bot;
+    }
+
     @Bean
-    public Bot bot(ChatUserService chatUserService, BotProperties botProperties) throws TelegramApiException {
+    public ApplicationListener<ApplicationReadyEvent> botStarter(Bot bot, ObjectProvider<BotSession> botSession) {
+        return event -> {
+            botSession.getIfAvailable();
+            Thread.ofVirtual()
+                    .name("register-commands")
+                    .start(bot::registerCommands);
+        };
+    }
+
+    @Lazy
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnProperty(name = "bot.mode", havingValue = "polling", matchIfMissing = true)
+    @ConditionalOnProperty(name = "bot.cluster.enabled", havingValue = "false", matchIfMissing = true)
+    public BotSession botSession(Bot bot, BotProperties botProperties) throws TelegramApiException {
         TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+        BotSession session = botsApi.registerBot(bot);
 
-        Bot bot = new Bot(chatUserService, botProperties);
-        botsApi.registerBot(bot);
+        log.info("{} started!", botProperties.getUsername());
 
-        bot.registerCommands();
+        return session;
+    }
 
-        log.info("{} started!", botProperties.getUsername());
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public MentionOutboxWorker mentionOutboxWorker(Bot bot, MentionOutbox mentionOutbox, ChatUserService chatUserService,
+                                                   BotProperties botProperties) {
+        return new MentionOutboxWorker(bot, mentionOutbox, chatUserService, botProperties);
+    }
 
-        return bot;
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "bot.cluster.enabled", havingValue = "true")
+    public ShardCoordinator shardCoordinator(Bot bot, UpdateInbox updateInbox, ClusterRepository clusterRepository,
+                                             DataSource dataSource, BotProperties botProperties,
+                                             MeterRegistry meterRegistry) {
+        return new ShardCoordinator(bot, updateInbox, clusterRepository, dataSource, botProperties, meterRegistry);
+    }
+
+    @Bean
+    public RosterReconciler rosterReconciler(Bot bot, ChatUserService chatUserService,
+                                             MembershipStore membershipStore, BotProperties botProperties) {
+        return new RosterReconciler(bot, chatUserService, membershipStore, botProperties.getReconciliation());
+    }
+
+    @Bean
+    public HealthIndicator botSessionHealthIndicator(ObjectProvider<BotSession> botSession,
+                                                     ObjectProvider<ShardCoordinator> shardCoordinator,
+                                                     BotProperties botProperties) {
+        return () -> {
+            ShardCoordinator coordinator = shardCoordinator.getIfAvailable();
+            if (coordinator != null) {
+                Health.Builder health = coordinator.isConnected() ? Health.up() : Health.down();
+                return health.withDetail("mode", "cluster")
+                        .withDetail("polling", coordinator.isPolling())
+                        .withDetail("shards", coordinator.getOwnedShards())
+                        .build();
+            }
+            if (botProperties.getMode() == BotProperties.Mode.WEBHOOK) {
+                return Health.up().withDetail("mode", "webhook").build();
+            }
+            BotSession session = botSession.getIfAvailable();
+            Health.Builder health = session != null && session.isRunning() ? Health.up() : Health.down();
+            return health.withDetail("mode", "polling").build();
+        };
     }
 
-}
\ No newline at end of file
+}
@@ -2,6 +2,13 @@ package kg.obukhov.wakethemallbot.config;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Data
 @ConfigurationProperties("bot")
@@ -11,4 +18,269 @@ public class BotProperties {
 
     private String token;
 
+    private String apiUrl = "https://api.telegram.org/bot";
+
+    private Mode mode = Mode.POLLING;
+
+    private Webhook webhook = new Webhook();
+
+    private Membership membership = new Membership();
+
+    private RosterCache rosterCache = new RosterCache();
+
+    private FanOut fanOut = new FanOut();
+
+    private AdminCache adminCache = new AdminCache();
+
+    private Outbound outbound = new Outbound();
+
+    private Dispatch dispatch = new Dispatch();
+
+    private CatchUp catchUp = new CatchUp();
+
+    private Flood flood = new Flood();
+
+    private MentionCache mentionCache = new MentionCache();
+
+    private MentionChunks mentionChunks = new MentionChunks();
+
+    private Triggers triggers = new Triggers();
+
+    private Reconciliation reconciliation = new Reconciliation();
+
+    private Outbox outbox = new Outbox();
+
+    private Cluster cluster = new Cluster();
+
+    private Storage storage = new Storage();
+
+    public enum Mode {
+        POLLING,
+        WEBHOOK
+    }
+
+    @Data
+    public static class Webhook {
+
+        private String url;
+
+        private String path = "/telegram/webhook";
+
+        private String secretToken;
+
+    }
+
+    @Data
+    public static class Membership {
+
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        private int batchSize = 500;
+
+        private int knownCapacity = 100_000;
+
+    }
+
+    @Data
+    public static class RosterCache {
+
+        private long maxSize = 10_000;
+
+        private Duration ttl = Duration.ofMinutes(10);
+
+    }
+
+    @Data
+    public static class FanOut {
+
+        private int requestsPerSecond = 25;
+
+        private int burst = 5;
+
+        private boolean verifyMembers = false;
+
+    }
+
+    @Data
+    public static class AdminCache {
+
+        private long maxSize = 10_000;
+
+        private Duration ttl = Duration.ofMinutes(10);
+
+    }
+
+    @Data
+    public static class Outbound {
+
+        private int globalPerSecond = 30;
+
+        private int chatPerSecond = 1;
+
+        private int groupPerMinute = 20;
+
+        private int maxRetries = 3;
+
+        private Duration drainTimeout = Duration.ofSeconds(10);
+
+    }
+
+    @Data
+    public static class Dispatch {
+
+        private int capacity = 10_000;
+
+        private int laneCapacity = 1_000;
+
+        private Duration offerTimeout = Duration.ofSeconds(10);
+
+        private Duration drainTimeout = Duration.ofSeconds(10);
+
+    }
+
+    @Data
+    public static class CatchUp {
+
+        private Duration liveThreshold = Duration.ofSeconds(10);
+
+    }
+
+    @Data
+    public static class MentionCache {
+
+        private long maxSize = 100_000;
+
+    }
+
+    @Data
+    public static class MentionChunks {
+
+        private int maxLength = 4096;
+
+        private int maxMentions = 50;
+
+    }
+
+    @Data
+    public static class Triggers {
+
+        private Map<Long, ChatTriggers> chats = new HashMap<>();
+
+        @Data
+        public static class ChatTriggers {
+
+            private List<String> all = new ArrayList<>();
+
+            private List<String> admins = new ArrayList<>();
+
+        }
+
+    }
+
+    @Data
+    public static class Flood {
+
+        private Limit defaults = new Limit();
+
+        private Map<Long, Limit> chats = new HashMap<>();
+
+        private Duration sweepInterval = Duration.ofMinutes(1);
+
+        @Data
+        public static class Limit {
+
+            private Duration duration = Duration.ofSeconds(5);
+
+            private int limit = 1;
+
+        }
+
+    }
+
+    @Data
+    public static class Reconciliation {
+
+        private boolean enabled = true;
+
+        private Duration interval = Duration.ofMinutes(10);
+
+        private int batchSize = 200;
+
+        private int requestsPerSecond = 2;
+
+    }
+
+    @Data
+    public static class Outbox {
+
+        private int workers = 2;
+
+        private int batchSize = 50;
+
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        private Duration lease = Duration.ofMinutes(1);
+
+        private Duration ttl = Duration.ofMinutes(30);
+
+        private int maxAttempts = 5;
+
+        private Duration retryBackoff = Duration.ofSeconds(5);
+
+        private Duration maxRetryBackoff = Duration.ofMinutes(5);
+
+        private Duration drainTimeout = Duration.ofSeconds(10);
+
+    }
+
+    @Data
+    public static class Cluster {
+
+        private boolean enabled = false;
+
+        private int shards = 16;
+
+        private Duration heartbeatInterval = Duration.ofSeconds(5);
+
+        private Duration nodeTimeout = Duration.ofSeconds(30);
+
+        private Duration pollInterval = Duration.ofMillis(100);
+
+        private int batchSize = 100;
+
+        private Duration claimLease = Duration.ofMinutes(1);
+
+        private Duration dedupeWindow = Duration.ofHours(1);
+
+    }
+
+    @Data
+    public static class Storage {
+
+        private Type type = Type.JDBC;
+
+        private Embedded embedded = new Embedded();
+
+        public enum Type {
+            JDBC,
+            EMBEDDED
+        }
+
+        @Data
+        public static class Embedded {
+
+            private String directory = "data";
+
+            private DataSize logSize = DataSize.ofMegabytes(64);
+
+            private Duration snapshotInterval = Duration.ofMinutes(10);
+
+            private boolean importFromDatabase = true;
+
+            private int importBatchSize = 10_000;
+
+        }
+
+    }
+
 }
@@ -0,0 +1,69 @@
+package kg.obukhov.wakethemallbot.config;
+
+import kg.obukhov.wakethemallbot.repository.JdbcMembershipStore;
+import kg.obukhov.wakethemallbot.repository.MembershipRepository;
+import kg.obukhov.wakethemallbot.repository.MembershipStore;
+import kg.obukhov.wakethemallbot.repository.MentionTargetRepository;
+import kg.obukhov.wakethemallbot.store.EmbeddedMembershipStore;
+import kg.obukhov.wakethemallbot.store.MembershipImporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.FileSystemUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
+
+@Configuration
+public class StorageConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "bot.storage.type", havingValue = "jdbc", matchIfMissing = true)
+    public MembershipStore jdbcMembershipStore(MentionTargetRepository mentionTargetRepository,
+                                               MembershipRepository membershipRepository) {
+        return new JdbcMembershipStore(mentionTargetRepository, membershipRepository);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "bot.storage.type", havingValue = "embedded")
+    public EmbeddedMembershipStore embeddedMembershipStore(DataSource dataSource,
+                                                           PlatformTransactionManager transactionManager,
+                                                           BotProperties botProperties) throws IOException {
+        if (botProperties.getCluster().isEnabled()) {
+            throw new IllegalStateException("bot.storage.type=embedded cannot be shared by cluster nodes, use jdbc storage");
+        }
+        BotProperties.Storage.Embedded embedded = botProperties.getStorage().getEmbedded();
+        Path directory = Path.of(embedded.getDirectory());
+        if (embedded.isImportFromDatabase() && isEmptyDirectory(directory)) {
+            importFromDatabase(directory, new MembershipImporter(dataSource, transactionManager,
+                    embedded.getImportBatchSize()), embedded.getLogSize().toBytes());
+        }
+        return new EmbeddedMembershipStore(directory, embedded.getLogSize().toBytes());
+    }
+
+    private static void importFromDatabase(Path directory, MembershipImporter importer, long logSize) throws IOException {
+        Path staging = directory.resolveSibling(directory.getFileName() + ".import");
+        FileSystemUtils.deleteRecursively(staging);
+        try (EmbeddedMembershipStore store = new EmbeddedMembershipStore(staging, logSize)) {
+            importer.importInto(store);
+            store.snapshot();
+        }
+        Files.deleteIfExists(directory);
+        Files.move(staging, directory, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean isEmptyDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return true;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findAny().isEmpty();
+        }
+    }
+
+}
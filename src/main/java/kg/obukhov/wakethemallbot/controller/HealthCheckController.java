@@ -1,14 +1,26 @@
 package kg.obukhov.wakethemallbot.controller;
 
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
+@RequiredArgsConstructor
 public class HealthCheckController {
 
+    private final HealthEndpoint healthEndpoint;
+
     @GetMapping("/health")
-    public String health() {
-        return "WakeThemAllBot is running!";
+    public ResponseEntity<HealthComponent> health() {
+        HealthComponent health = healthEndpoint.healthForPath("readiness");
+        HttpStatus status = Status.UP.equals(health.getStatus()) ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(Health.status(health.getStatus()).build());
     }
 
-}
\ No newline at end of file
+}
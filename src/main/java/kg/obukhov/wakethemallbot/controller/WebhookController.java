@@ -0,0 +1,48 @@
+package kg.obukhov.wakethemallbot.controller;
+
+import kg.obukhov.wakethemallbot.bot.Bot;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bot.mode", havingValue = "webhook")
+public class WebhookController {
+
+    private static final String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final Bot bot;
+    private final BotProperties botProperties;
+
+    @PostMapping("${bot.webhook.path:/telegram/webhook}")
+    public ResponseEntity<Void> onUpdate(@RequestHeader(value = SECRET_TOKEN_HEADER, required = false) String secretToken,
+                                         @RequestBody Update update) {
+        if (!isValidSecretToken(secretToken)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return bot.receiveUpdate(update)
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+    private boolean isValidSecretToken(String secretToken) {
+        if (secretToken == null) {
+            return false;
+        }
+        byte[] expected = botProperties.getWebhook().getSecretToken().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, secretToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -2,11 +2,13 @@ package kg.obukhov.wakethemallbot.interfaces;
 
 import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.telegram.telegrambots.meta.api.objects.User;
 
 @Mapper(componentModel = "spring")
 public interface UserMapper {
 
+    @Mapping(target = "privateChatId", ignore = true)
     TelegramUserEntity toEntity(User user);
 
 }
\ No newline at end of file
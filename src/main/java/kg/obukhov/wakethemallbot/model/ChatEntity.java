@@ -24,7 +24,7 @@ public class ChatEntity {
     @Column
     private String title;
 
-    @ManyToMany(mappedBy = "chats", fetch = FetchType.EAGER)
+    @ManyToMany(mappedBy = "chats", fetch = FetchType.LAZY)
     @EqualsAndHashCode.Exclude
     @ToString.Exclude
     private Set<TelegramUserEntity> users = new HashSet<>();
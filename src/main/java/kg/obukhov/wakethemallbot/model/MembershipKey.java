@@ -0,0 +1,4 @@
+package kg.obukhov.wakethemallbot.model;
+
+public record MembershipKey(long userId, long chatId) {
+}
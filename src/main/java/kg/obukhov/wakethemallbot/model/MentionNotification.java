@@ -0,0 +1,10 @@
+package kg.obukhov.wakethemallbot.model;
+
+public record MentionNotification(Long id, long chatId, int messageId, long userId, long privateChatId, String text,
+                                  int attempts) {
+
+    public MentionNotification(long chatId, int messageId, long userId, long privateChatId, String text) {
+        this(null, chatId, messageId, userId, privateChatId, text, 0);
+    }
+
+}
@@ -0,0 +1,4 @@
+package kg.obukhov.wakethemallbot.model;
+
+public record MentionTarget(Long id, String firstName, String lastName, String userName, Long privateChatId) {
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -26,13 +27,17 @@ public class TelegramUserEntity {
     @Column
     private String userName;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @Column
+    private Long privateChatId;
+
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
             name = "user_chat",
             joinColumns = @JoinColumn(name = "user_id"),
             inverseJoinColumns = @JoinColumn(name = "chat_id")
     )
     @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<ChatEntity> chats = new HashSet<>();
 
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package kg.obukhov.wakethemallbot.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class ClusterRepository {
+
+    private static final String HEARTBEAT = """
+            INSERT INTO cluster_node (id, heartbeat_at) VALUES (?, now())
+            ON CONFLICT (id) DO UPDATE SET heartbeat_at = EXCLUDED.heartbeat_at
+            """;
+    private static final String COUNT_LIVE_NODES =
+            "SELECT count(*) FROM cluster_node WHERE heartbeat_at > now() - ? * interval '1 millisecond'";
+    private static final String DELETE_NODE = "DELETE FROM cluster_node WHERE id = ?";
+    private static final String DELETE_DEAD_NODES =
+            "DELETE FROM cluster_node WHERE heartbeat_at <= now() - ? * interval '1 millisecond'";
+    private static final String INSERT_UPDATE = """
+            INSERT INTO update_inbox (update_id, shard, payload) VALUES (?, ?, ?)
+            ON CONFLICT (update_id) DO NOTHING
+            """;
+    private static final String CLAIM_UPDATES = """
+            UPDATE update_inbox SET claimed_at = now(), claimed_by = ?
+            WHERE update_id IN (
+                SELECT update_id FROM update_inbox
+                WHERE handled_at IS NULL AND shard = ANY (?::int[])
+                  AND (claimed_at IS NULL OR claimed_at < now() - ? * interval '1 millisecond')
+                ORDER BY update_id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING update_id, payload
+            """;
+    private static final String MARK_HANDLED = "UPDATE update_inbox SET handled_at = now() WHERE update_id = ANY (?::bigint[])";
+    private static final String RELEASE_UPDATES =
+            "UPDATE update_inbox SET claimed_at = NULL, claimed_by = NULL WHERE update_id = ANY (?::bigint[]) AND handled_at IS NULL";
+    private static final String RENEW_CLAIMS =
+            "UPDATE update_inbox SET claimed_at = now() WHERE claimed_by = ? AND claimed_at IS NOT NULL AND handled_at IS NULL";
+    private static final String DELETE_OLD_UPDATES =
+            "DELETE FROM update_inbox WHERE received_at <= now() - ? * interval '1 millisecond'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void heartbeat(String nodeId) {
+        jdbcTemplate.update(HEARTBEAT, nodeId);
+    }
+
+    public int countLiveNodes(Duration timeout) {
+        Integer count = jdbcTemplate.queryForObject(COUNT_LIVE_NODES, Integer.class, timeout.toMillis());
+        return count == null ? 0 : count;
+    }
+
+    public void deleteNode(String nodeId) {
+        jdbcTemplate.update(DELETE_NODE, nodeId);
+    }
+
+    public int deleteDeadNodes(Duration timeout) {
+        return jdbcTemplate.update(DELETE_DEAD_NODES, timeout.toMillis());
+    }
+
+    public boolean insertUpdate(long updateId, int shard, String payload) {
+        return jdbcTemplate.update(INSERT_UPDATE, updateId, shard, payload) > 0;
+    }
+
+    public SortedMap<Long, String> claimUpdates(String nodeId, Collection<Integer> shards, int limit, Duration lease) {
+        Integer[] shardArray = shards.toArray(Integer[]::new);
+        SortedMap<Long, String> updates = new TreeMap<>();
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(CLAIM_UPDATES);
+                    statement.setString(1, nodeId);
+                    statement.setArray(2, connection.createArrayOf("int", shardArray));
+                    statement.setLong(3, lease.toMillis());
+                    statement.setInt(4, limit);
+                    return statement;
+                }, resultSet -> {
+                    updates.put(resultSet.getLong("update_id"), resultSet.getString("payload"));
+                });
+        return updates;
+    }
+
+    public int renewClaims(String nodeId) {
+        return jdbcTemplate.update(RENEW_CLAIMS, nodeId);
+    }
+
+    public int markHandled(Collection<Long> updateIds) {
+        return updateAll(MARK_HANDLED, updateIds);
+    }
+
+    public int releaseUpdates(Collection<Long> updateIds) {
+        return updateAll(RELEASE_UPDATES, updateIds);
+    }
+
+    private int updateAll(String sql, Collection<Long> updateIds) {
+        if (updateIds.isEmpty()) {
+            return 0;
+        }
+        Long[] idArray = updateIds.toArray(Long[]::new);
+        return jdbcTemplate.update(sql, statement ->
+                statement.setArray(1, statement.getConnection().createArrayOf("bigint", idArray)));
+    }
+
+    public int deleteOldUpdates(Duration retention) {
+        return jdbcTemplate.update(DELETE_OLD_UPDATES, retention.toMillis());
+    }
+
+}
@@ -0,0 +1,31 @@
+package kg.obukhov.wakethemallbot.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+
+@Repository
+@RequiredArgsConstructor
+public class FloodStateRepository {
+
+    private static final String TRY_ACQUIRE = """
+            INSERT INTO flood_state (chat_id, theoretical_arrival) VALUES (?, now() + ? * interval '1 millisecond')
+            ON CONFLICT (chat_id) DO UPDATE
+            SET theoretical_arrival = greatest(flood_state.theoretical_arrival, now()) + ? * interval '1 millisecond'
+            WHERE flood_state.theoretical_arrival <= now() + ? * interval '1 millisecond'
+            """;
+    private static final String DELETE_IDLE = "DELETE FROM flood_state WHERE theoretical_arrival <= now()";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean tryAcquire(Long chatId, Duration interval, Duration tolerance) {
+        return jdbcTemplate.update(TRY_ACQUIRE, chatId, interval.toMillis(), interval.toMillis(), tolerance.toMillis()) > 0;
+    }
+
+    public int deleteIdle() {
+        return jdbcTemplate.update(DELETE_IDLE);
+    }
+
+}
@@ -0,0 +1,59 @@
+package kg.obukhov.wakethemallbot.repository;
+
+import kg.obukhov.wakethemallbot.model.ChatEntity;
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class JdbcMembershipStore implements MembershipStore {
+
+    private final MentionTargetRepository mentionTargetRepository;
+    private final MembershipRepository membershipRepository;
+
+    @Override
+    public List<MentionTarget> findAllByChatId(Long chatId) {
+        return mentionTargetRepository.findAllByChatId(chatId);
+    }
+
+    @Override
+    public Long findPrivateChatId(Long userId) {
+        return mentionTargetRepository.findPrivateChatId(userId);
+    }
+
+    @Override
+    public void insertAll(Collection<ChatEntity> chats, Collection<TelegramUserEntity> users,
+                          Collection<MembershipKey> memberships) {
+        membershipRepository.insertAll(chats, users, memberships);
+    }
+
+    @Override
+    public int deleteAll(Collection<MembershipKey> memberships) {
+        return membershipRepository.deleteAll(memberships);
+    }
+
+    @Override
+    public int markVerified(Collection<MembershipKey> memberships) {
+        return membershipRepository.markVerified(memberships);
+    }
+
+    @Override
+    public List<MembershipKey> findLeastRecentlyVerified(int limit) {
+        return membershipRepository.findLeastRecentlyVerified(limit);
+    }
+
+    @Override
+    public void deleteChat(Long chatId) {
+        membershipRepository.deleteChat(chatId);
+    }
+
+    @Override
+    public int deleteEmptyChats() {
+        return membershipRepository.deleteEmptyChats();
+    }
+
+}
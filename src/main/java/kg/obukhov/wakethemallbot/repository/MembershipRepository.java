@@ -0,0 +1,109 @@
+package kg.obukhov.wakethemallbot.repository;
+
+import kg.obukhov.wakethemallbot.model.ChatEntity;
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class MembershipRepository {
+
+    private static final String INSERT_CHAT =
+            "INSERT INTO chat (id, type, title) VALUES (?, ?, ?) ON CONFLICT (id) DO NOTHING";
+    private static final String INSERT_USER = """
+            INSERT INTO telegram_user (id, first_name, last_name, user_name, private_chat_id) VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO UPDATE SET private_chat_id = EXCLUDED.private_chat_id
+            WHERE EXCLUDED.private_chat_id IS NOT NULL
+              AND telegram_user.private_chat_id IS DISTINCT FROM EXCLUDED.private_chat_id
+            """;
+    private static final String INSERT_USER_CHAT = """
+            INSERT INTO user_chat (user_id, chat_id, last_verified_at) VALUES (?, ?, now())
+            ON CONFLICT (user_id, chat_id) DO NOTHING
+            """;
+    private static final String DELETE_USER_CHATS = """
+            DELETE FROM user_chat
+            WHERE (user_id, chat_id) IN (SELECT * FROM unnest(?::bigint[], ?::bigint[]))
+            """;
+    private static final String MARK_VERIFIED = """
+            UPDATE user_chat SET last_verified_at = now()
+            WHERE (user_id, chat_id) IN (SELECT * FROM unnest(?::bigint[], ?::bigint[]))
+            """;
+    private static final String FIND_LEAST_RECENTLY_VERIFIED = """
+            SELECT user_id, chat_id FROM user_chat
+            WHERE chat_id < 0
+            ORDER BY last_verified_at NULLS FIRST
+            LIMIT ?
+            """;
+    private static final String DELETE_CHAT = "DELETE FROM chat WHERE id = ?";
+    private static final String DELETE_EMPTY_CHATS = """
+            DELETE FROM chat c
+            WHERE c.id < 0 AND NOT EXISTS (SELECT 1 FROM user_chat uc WHERE uc.chat_id = c.id)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void insertAll(Collection<ChatEntity> chats,
+                          Collection<TelegramUserEntity> users,
+                          Collection<MembershipKey> memberships) {
+        jdbcTemplate.batchUpdate(INSERT_CHAT, chats, chats.size(), (statement, chat) -> {
+            statement.setLong(1, chat.getId());
+            statement.setString(2, chat.getType());
+            statement.setString(3, chat.getTitle());
+        });
+        jdbcTemplate.batchUpdate(INSERT_USER, users, users.size(), (statement, user) -> {
+            statement.setLong(1, user.getId());
+            statement.setString(2, user.getFirstName());
+            statement.setString(3, user.getLastName());
+            statement.setString(4, user.getUserName());
+            statement.setObject(5, user.getPrivateChatId(), Types.BIGINT);
+        });
+        jdbcTemplate.batchUpdate(INSERT_USER_CHAT, memberships, memberships.size(), (statement, membership) -> {
+            statement.setLong(1, membership.userId());
+            statement.setLong(2, membership.chatId());
+        });
+    }
+
+    public int deleteAll(Collection<MembershipKey> memberships) {
+        return updateAll(DELETE_USER_CHATS, memberships);
+    }
+
+    public int markVerified(Collection<MembershipKey> memberships) {
+        return updateAll(MARK_VERIFIED, memberships);
+    }
+
+    public List<MembershipKey> findLeastRecentlyVerified(int limit) {
+        return jdbcTemplate.query(FIND_LEAST_RECENTLY_VERIFIED,
+                (resultSet, rowNum) -> new MembershipKey(resultSet.getLong("user_id"), resultSet.getLong("chat_id")),
+                limit);
+    }
+
+    public void deleteChat(Long chatId) {
+        jdbcTemplate.update(DELETE_CHAT, chatId);
+    }
+
+    public int deleteEmptyChats() {
+        return jdbcTemplate.update(DELETE_EMPTY_CHATS);
+    }
+
+    private int updateAll(String sql, Collection<MembershipKey> memberships) {
+        if (memberships.isEmpty()) {
+            return 0;
+        }
+        Long[] userIds = memberships.stream().map(MembershipKey::userId).toArray(Long[]::new);
+        Long[] chatIds = memberships.stream().map(MembershipKey::chatId).toArray(Long[]::new);
+        return jdbcTemplate.update(sql, statement -> {
+            statement.setArray(1, statement.getConnection().createArrayOf("bigint", userIds));
+            statement.setArray(2, statement.getConnection().createArrayOf("bigint", chatIds));
+        });
+    }
+
+}
@@ -0,0 +1,29 @@
+package kg.obukhov.wakethemallbot.repository;
+
+import kg.obukhov.wakethemallbot.model.ChatEntity;
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface MembershipStore {
+
+    List<MentionTarget> findAllByChatId(Long chatId);
+
+    Long findPrivateChatId(Long userId);
+
+    void insertAll(Collection<ChatEntity> chats, Collection<TelegramUserEntity> users, Collection<MembershipKey> memberships);
+
+    int deleteAll(Collection<MembershipKey> memberships);
+
+    int markVerified(Collection<MembershipKey> memberships);
+
+    List<MembershipKey> findLeastRecentlyVerified(int limit);
+
+    void deleteChat(Long chatId);
+
+    int deleteEmptyChats();
+
+}
@@ -0,0 +1,88 @@
+package kg.obukhov.wakethemallbot.repository;
+
+import kg.obukhov.wakethemallbot.model.MentionNotification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class MentionOutboxRepository {
+
+    private static final String INSERT = """
+            INSERT INTO mention_outbox (chat_id, message_id, user_id, private_chat_id, text, expires_at)
+            VALUES (?, ?, ?, ?, ?, now() + ? * interval '1 millisecond')
+            ON CONFLICT (chat_id, message_id, user_id) DO NOTHING
+            """;
+    private static final String CLAIM = """
+            UPDATE mention_outbox o
+            SET attempts = o.attempts + 1, available_at = now() + ? * interval '1 millisecond'
+            FROM (
+                SELECT id FROM mention_outbox
+                WHERE available_at <= now() AND expires_at > now()
+                ORDER BY available_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ) claimed
+            WHERE o.id = claimed.id
+            RETURNING o.id, o.chat_id, o.message_id, o.user_id, o.private_chat_id, o.text, o.attempts
+            """;
+    private static final String DELETE_ALL = "DELETE FROM mention_outbox WHERE id = ANY (?::bigint[])";
+    private static final String RESCHEDULE =
+            "UPDATE mention_outbox SET available_at = now() + ? * interval '1 millisecond' WHERE id = ?";
+    private static final String DELETE_EXPIRED = "DELETE FROM mention_outbox WHERE expires_at <= now()";
+
+    private static final RowMapper<MentionNotification> ROW_MAPPER = (resultSet, rowNum) -> new MentionNotification(
+            resultSet.getLong("id"),
+            resultSet.getLong("chat_id"),
+            resultSet.getInt("message_id"),
+            resultSet.getLong("user_id"),
+            resultSet.getLong("private_chat_id"),
+            resultSet.getString("text"),
+            resultSet.getInt("attempts")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(Collection<MentionNotification> notifications, Duration ttl) {
+        jdbcTemplate.batchUpdate(INSERT, notifications, notifications.size(), (statement, notification) -> {
+            statement.setLong(1, notification.chatId());
+            statement.setInt(2, notification.messageId());
+            statement.setLong(3, notification.userId());
+            statement.setLong(4, notification.privateChatId());
+            statement.setString(5, notification.text());
+            statement.setLong(6, ttl.toMillis());
+        });
+    }
+
+    public List<MentionNotification> claim(int limit, Duration lease) {
+        return jdbcTemplate.query(CLAIM, ROW_MAPPER, lease.toMillis(), limit);
+    }
+
+    public int deleteAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Long[] idArray = ids.toArray(Long[]::new);
+        return jdbcTemplate.update(DELETE_ALL, statement ->
+                statement.setArray(1, statement.getConnection().createArrayOf("bigint", idArray)));
+    }
+
+    public void rescheduleAll(Map<Long, Duration> delays) {
+        jdbcTemplate.batchUpdate(RESCHEDULE, delays.entrySet(), delays.size(), (statement, delay) -> {
+            statement.setLong(1, delay.getValue().toMillis());
+            statement.setLong(2, delay.getKey());
+        });
+    }
+
+    public int deleteExpired() {
+        return jdbcTemplate.update(DELETE_EXPIRED);
+    }
+
+}
@@ -0,0 +1,45 @@
+package kg.obukhov.wakethemallbot.repository;
+
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class MentionTargetRepository {
+
+    static final String FIND_ALL_BY_CHAT_ID = """
+            SELECT u.id, u.first_name, u.last_name, u.user_name, u.private_chat_id
+            FROM user_chat uc
+            JOIN telegram_user u ON u.id = uc.user_id
+            WHERE uc.chat_id = ?
+            """;
+
+    static final String FIND_PRIVATE_CHAT_ID = "SELECT private_chat_id FROM telegram_user WHERE id = ?";
+
+    private static final RowMapper<MentionTarget> ROW_MAPPER = (resultSet, rowNum) -> new MentionTarget(
+            resultSet.getLong("id"),
+            resultSet.getString("first_name"),
+            resultSet.getString("last_name"),
+            resultSet.getString("user_name"),
+            resultSet.getObject("private_chat_id", Long.class)
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<MentionTarget> findAllByChatId(Long chatId) {
+        return jdbcTemplate.query(FIND_ALL_BY_CHAT_ID, ROW_MAPPER, chatId);
+    }
+
+    public Long findPrivateChatId(Long userId) {
+        return jdbcTemplate.query(FIND_PRIVATE_CHAT_ID, (resultSet, rowNum) -> resultSet.getObject(1, Long.class), userId)
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+}
@@ -1,29 +1,36 @@
 package kg.obukhov.wakethemallbot.service;
 
-import kg.obukhov.wakethemallbot.interfaces.ChatMapper;
-import kg.obukhov.wakethemallbot.interfaces.UserMapper;
-import kg.obukhov.wakethemallbot.model.ChatEntity;
-import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
-import kg.obukhov.wakethemallbot.repository.ChatRepository;
-import kg.obukhov.wakethemallbot.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import kg.obukhov.wakethemallbot.repository.MembershipStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.Chat;
 import org.telegram.telegrambots.meta.api.objects.User;
 
+import java.util.Collection;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class ChatUserService {
 
-    private final UserRepository userRepository;
-    private final ChatRepository chatRepository;
-    private final ChatMapper chatMapper;
-    private final UserMapper userMapper;
+    static final String DB_TIMER = "bot.db";
 
-    public List<TelegramUserEntity> findAllByChatId(Long chatId) {
-        return userRepository.findAllByChatId(chatId);
+    private final MembershipStore membershipStore;
+    private final MembershipBuffer membershipBuffer;
+    private final RosterCache rosterCache;
+    private final MeterRegistry meterRegistry;
+
+    public List<MentionTarget> findAllByChatId(Long chatId) {
+        return rosterCache.get(chatId, id -> meterRegistry.timer(DB_TIMER, "operation", "find_roster")
+                .record(() -> membershipStore.findAllByChatId(id)));
+    }
+
+    public Long findPrivateChatId(Long userId) {
+        return meterRegistry.timer(DB_TIMER, "operation", "find_private_chat")
+                .record(() -> membershipStore.findPrivateChatId(userId));
     }
 
     public void saveChatAndUser(Chat chat, User user) {
@@ -31,22 +38,28 @@ public class ChatUserService {
             return;
         }
 
-        TelegramUserEntity telegramUserEntity = userRepository.findById(user.getId())
-                .orElseGet(() -> userMapper.toEntity(user));
-        boolean userNotSavedToChat = telegramUserEntity.getChats().stream()
-                .map(ChatEntity::getId)
-                .noneMatch(chat.getId()::equals);
-        if (userNotSavedToChat) {
-            telegramUserEntity.getChats().add(chatMapper.toEntity(chat));
-            userRepository.save(telegramUserEntity);
-        }
+        membershipBuffer.record(chat, user);
+    }
+
+    public void flushMemberships() {
+        membershipBuffer.flush();
+    }
+
+    public void removeUserFromChat(Long userId, Long chatId) {
+        membershipBuffer.remove(new MembershipKey(userId, chatId));
+        rosterCache.invalidate(chatId);
+    }
+
+    public void removeMemberships(Collection<MembershipKey> memberships) {
+        memberships.forEach(membershipBuffer::remove);
+        rosterCache.invalidateAll(memberships.stream().map(MembershipKey::chatId).distinct().toList());
     }
 
-    public void removeUserFromChat(TelegramUserEntity user, Chat chat) {
-        ChatEntity chatEntity = chatRepository.findById(chat.getId())
-                .orElse(null);
-        user.getChats().remove(chatEntity);
-        userRepository.save(user);
+    public void removeChat(Long chatId) {
+        membershipBuffer.forgetChat(chatId);
+        meterRegistry.timer(DB_TIMER, "operation", "remove_chat")
+                .record(() -> membershipStore.deleteChat(chatId));
+        rosterCache.invalidate(chatId);
     }
 
-}
\ No newline at end of file
+}
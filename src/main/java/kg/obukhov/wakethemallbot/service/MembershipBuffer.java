@@ -0,0 +1,162 @@
+package kg.obukhov.wakethemallbot.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.exception.StorageException;
+import kg.obukhov.wakethemallbot.interfaces.ChatMapper;
+import kg.obukhov.wakethemallbot.interfaces.UserMapper;
+import kg.obukhov.wakethemallbot.model.ChatEntity;
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
+import kg.obukhov.wakethemallbot.repository.MembershipStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MembershipBuffer {
+
+    private static final String PRIVATE_CHAT_TYPE = "private";
+
+    private final MembershipStore membershipStore;
+    private final ChatMapper chatMapper;
+    private final UserMapper userMapper;
+    private final RosterCache rosterCache;
+    private final BotProperties botProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Set<MembershipKey> known = ConcurrentHashMap.newKeySet();
+    private final Map<MembershipKey, PendingMembership> pending = new ConcurrentHashMap<>();
+    private final Set<MembershipKey> removals = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public void record(Chat chat, User user) {
+        MembershipKey key = new MembershipKey(user.getId(), chat.getId());
+        if (known.contains(key)) {
+            return;
+        }
+
+        if (known.size() >= botProperties.getMembership().getKnownCapacity()) {
+            known.clear();
+        }
+        if (known.add(key)) {
+            removals.remove(key);
+            pending.put(key, new PendingMembership(chatMapper.toEntity(chat), userMapper.toEntity(user)));
+        }
+    }
+
+    public void remove(MembershipKey key) {
+        known.remove(key);
+        pending.remove(key);
+        removals.add(key);
+    }
+
+    public void forgetChat(Long chatId) {
+        known.removeIf(key -> key.chatId() == chatId);
+        pending.keySet().removeIf(key -> key.chatId() == chatId);
+        removals.removeIf(key -> key.chatId() == chatId);
+    }
+
+    public int getPendingCount() {
+        return pending.size() + removals.size();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${bot.membership.flush-interval:1s}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            boolean flushed = true;
+            while (flushed && !removals.isEmpty()) {
+                flushed = flushRemovals();
+            }
+            flushed = true;
+            while (flushed && !pending.isEmpty()) {
+                flushed = flushBatch();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean flushRemovals() {
+        int batchSize = botProperties.getMembership().getBatchSize();
+        List<MembershipKey> batch = new ArrayList<>();
+        Iterator<MembershipKey> iterator = removals.iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            MembershipKey key = iterator.next();
+            if (removals.remove(key)) {
+                batch.add(key);
+            }
+        }
+
+        try {
+            meterRegistry.timer(ChatUserService.DB_TIMER, "operation", "delete_memberships")
+                    .record(() -> membershipStore.deleteAll(batch));
+            rosterCache.invalidateAll(batch.stream().map(MembershipKey::chatId).distinct().toList());
+            log.debug("Removed {} memberships", batch.size());
+            return true;
+        } catch (DataAccessException | StorageException e) {
+            log.error("Failed to remove {} memberships, will retry", batch.size(), e);
+            batch.stream().filter(key -> !known.contains(key)).forEach(removals::add);
+            return false;
+        }
+    }
+
+    private boolean flushBatch() {
+        int batchSize = botProperties.getMembership().getBatchSize();
+        Map<MembershipKey, PendingMembership> batch = new LinkedHashMap<>();
+        Iterator<Map.Entry<MembershipKey, PendingMembership>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            Map.Entry<MembershipKey, PendingMembership> entry = iterator.next();
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        Map<Long, ChatEntity> chats = new LinkedHashMap<>();
+        Map<Long, TelegramUserEntity> users = new LinkedHashMap<>();
+        Set<Long> privateChatUsers = new HashSet<>();
+        for (PendingMembership membership : batch.values()) {
+            ChatEntity chat = membership.chat();
+            chats.putIfAbsent(chat.getId(), chat);
+            TelegramUserEntity user = users.computeIfAbsent(membership.user().getId(), id -> membership.user());
+            if (PRIVATE_CHAT_TYPE.equals(chat.getType())) {
+                user.setPrivateChatId(chat.getId());
+                privateChatUsers.add(user.getId());
+            }
+        }
+
+        try {
+            meterRegistry.timer(ChatUserService.DB_TIMER, "operation", "save_memberships")
+                    .record(() -> membershipStore.insertAll(chats.values(), users.values(), batch.keySet()));
+            rosterCache.invalidateAll(chats.keySet());
+            rosterCache.invalidateRostersOf(privateChatUsers);
+            log.debug("Flushed {} memberships of {} users in {} chats", batch.size(), users.size(), chats.size());
+            return true;
+        } catch (DataAccessException | StorageException e) {
+            log.error("Failed to flush {} memberships, will retry", batch.size(), e);
+            batch.forEach((key, membership) -> {
+                if (known.contains(key) && !removals.contains(key)) {
+                    pending.putIfAbsent(key, membership);
+                }
+            });
+            return false;
+        }
+    }
+
+    private record PendingMembership(ChatEntity chat, TelegramUserEntity user) {
+    }
+
+}
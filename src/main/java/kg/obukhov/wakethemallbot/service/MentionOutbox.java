@@ -0,0 +1,133 @@
+package kg.obukhov.wakethemallbot.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.model.MentionNotification;
+import kg.obukhov.wakethemallbot.repository.MentionOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MentionOutbox {
+
+    private static final String MESSAGES_COUNTER = "bot.outbox.messages";
+
+    private final MentionOutboxRepository mentionOutboxRepository;
+    private final BotProperties botProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition enqueued = lock.newCondition();
+    private boolean hasEnqueued;
+
+    public void enqueue(Collection<MentionNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        meterRegistry.timer(ChatUserService.DB_TIMER, "operation", "enqueue_mentions")
+                .record(() -> mentionOutboxRepository.insertAll(notifications, botProperties.getOutbox().getTtl()));
+        count("enqueued", notifications.size());
+        signalEnqueued();
+    }
+
+    public List<MentionNotification> claim(int limit) {
+        return meterRegistry.timer(ChatUserService.DB_TIMER, "operation", "claim_mentions")
+                .record(() -> mentionOutboxRepository.claim(limit, botProperties.getOutbox().getLease()));
+    }
+
+    public void complete(Collection<Long> ids) {
+        delete(ids, "sent");
+    }
+
+    public void discard(Collection<Long> ids) {
+        delete(ids, "discarded");
+    }
+
+    public void retry(Collection<MentionNotification> notifications) {
+        BotProperties.Outbox properties = botProperties.getOutbox();
+        Map<Long, Duration> delays = new LinkedHashMap<>();
+        List<Long> exhausted = new ArrayList<>();
+        for (MentionNotification notification : notifications) {
+            if (notification.attempts() >= properties.getMaxAttempts()) {
+                exhausted.add(notification.id());
+            } else {
+                delays.put(notification.id(), getBackoff(properties, notification.attempts()));
+            }
+        }
+
+        if (!delays.isEmpty()) {
+            meterRegistry.timer(ChatUserService.DB_TIMER, "operation", "reschedule_mentions")
+                    .record(() -> mentionOutboxRepository.rescheduleAll(delays));
+            count("retried", delays.size());
+        }
+        if (!exhausted.isEmpty()) {
+            log.warn("Dropping {} mention notifications after {} attempts", exhausted.size(), properties.getMaxAttempts());
+            delete(exhausted, "dropped");
+        }
+    }
+
+    public void awaitEnqueued(Duration timeout) throws InterruptedException {
+        long nanos = timeout.toNanos();
+        lock.lock();
+        try {
+            while (!hasEnqueued && nanos > 0) {
+                nanos = enqueued.awaitNanos(nanos);
+            }
+            hasEnqueued = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bot.outbox.purge-interval:1m}")
+    public void purgeExpired() {
+        try {
+            int expired = mentionOutboxRepository.deleteExpired();
+            if (expired > 0) {
+                log.warn("Dropped {} expired mention notifications", expired);
+                count("expired", expired);
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to purge expired mention notifications", e);
+        }
+    }
+
+    protected void signalEnqueued() {
+        lock.lock();
+        try {
+            hasEnqueued = true;
+            enqueued.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void delete(Collection<Long> ids, String outcome) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        meterRegistry.timer(ChatUserService.DB_TIMER, "operation", "delete_mentions")
+                .record(() -> mentionOutboxRepository.deleteAll(ids));
+        count(outcome, ids.size());
+    }
+
+    private void count(String outcome, int amount) {
+        meterRegistry.counter(MESSAGES_COUNTER, "outcome", outcome).increment(amount);
+    }
+
+    private static Duration getBackoff(BotProperties.Outbox properties, int attempts) {
+        Duration backoff = properties.getRetryBackoff().multipliedBy(1L << Math.clamp(attempts - 1, 0, 16));
+        return backoff.compareTo(properties.getMaxRetryBackoff()) > 0 ? properties.getMaxRetryBackoff() : backoff;
+    }
+
+}
@@ -0,0 +1,50 @@
+package kg.obukhov.wakethemallbot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+@Component
+public class RosterCache {
+
+    private final Cache<Long, List<MentionTarget>> rosters;
+
+    public RosterCache(BotProperties botProperties, MeterRegistry meterRegistry) {
+        BotProperties.RosterCache properties = botProperties.getRosterCache();
+        this.rosters = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, rosters, "rosters");
+    }
+
+    public List<MentionTarget> get(Long chatId, Function<Long, List<MentionTarget>> loader) {
+        return rosters.get(chatId, id -> List.copyOf(loader.apply(id)));
+    }
+
+    public void invalidate(Long chatId) {
+        rosters.invalidate(chatId);
+    }
+
+    public void invalidateAll(Collection<Long> chatIds) {
+        rosters.invalidateAll(chatIds);
+    }
+
+    public void invalidateRostersOf(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        rosters.asMap().entrySet().removeIf(entry -> entry.getValue().stream()
+                .anyMatch(target -> userIds.contains(target.id())));
+    }
+
+}
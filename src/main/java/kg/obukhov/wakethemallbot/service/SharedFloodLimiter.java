@@ -0,0 +1,46 @@
+package kg.obukhov.wakethemallbot.service;
+
+import kg.obukhov.wakethemallbot.bot.ChatRateLimiter;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.repository.FloodStateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bot.cluster.enabled", havingValue = "true")
+public class SharedFloodLimiter implements ChatRateLimiter {
+
+    private final FloodStateRepository floodStateRepository;
+    private final BotProperties botProperties;
+
+    @Override
+    public boolean tryAcquire(Long chatId) {
+        BotProperties.Flood flood = botProperties.getFlood();
+        BotProperties.Flood.Limit limit = flood.getChats().getOrDefault(chatId, flood.getDefaults());
+        Duration interval = limit.getDuration().dividedBy(limit.getLimit());
+        try {
+            return floodStateRepository.tryAcquire(chatId, interval, limit.getDuration().minus(interval));
+        } catch (DataAccessException e) {
+            log.error("Failed to check flood limit of chat {}, allowing the mention", chatId, e);
+            return true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bot.flood.sweep-interval:1m}")
+    public void evictIdle() {
+        try {
+            floodStateRepository.deleteIdle();
+        } catch (DataAccessException e) {
+            log.error("Failed to evict idle flood state", e);
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package kg.obukhov.wakethemallbot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kg.obukhov.wakethemallbot.bot.UpdateDispatcher;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.repository.ClusterRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bot.cluster.enabled", havingValue = "true")
+public class UpdateInbox {
+
+    private final ClusterRepository clusterRepository;
+    private final ObjectMapper objectMapper;
+    private final BotProperties botProperties;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition offered = lock.newCondition();
+    private boolean hasOffered;
+
+    public int getShard(Long chatId) {
+        return Math.floorMod(Long.hashCode(chatId), botProperties.getCluster().getShards());
+    }
+
+    public boolean offer(Update update) {
+        try {
+            store(update, objectMapper.writeValueAsString(update));
+        } catch (JsonProcessingException | DataAccessException e) {
+            log.error("Failed to store update {}", update.getUpdateId(), e);
+            return false;
+        }
+        signalOffered();
+        return true;
+    }
+
+    public boolean submit(Update update) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(update);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize update {}", update.getUpdateId(), e);
+            return false;
+        }
+
+        Duration retryInterval = botProperties.getCluster().getPollInterval();
+        while (true) {
+            try {
+                store(update, payload);
+                break;
+            } catch (DataAccessException e) {
+                log.warn("Failed to store update {}, retrying in {}", update.getUpdateId(), retryInterval, e);
+            }
+            try {
+                Thread.sleep(retryInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        signalOffered();
+        return true;
+    }
+
+    private void store(Update update, String payload) {
+        int shard = getShard(UpdateDispatcher.getChatId(update));
+        if (!clusterRepository.insertUpdate(update.getUpdateId(), shard, payload)) {
+            log.debug("Update {} was already received", update.getUpdateId());
+        }
+    }
+
+    private void signalOffered() {
+        lock.lock();
+        try {
+            hasOffered = true;
+            offered.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<Update> claim(String nodeId, Collection<Integer> shards, int limit) {
+        List<Update> updates = new ArrayList<>();
+        List<Long> unreadable = new ArrayList<>();
+        Duration lease = botProperties.getCluster().getClaimLease();
+        clusterRepository.claimUpdates(nodeId, shards, limit, lease).forEach((updateId, payload) -> {
+            try {
+                updates.add(objectMapper.readValue(payload, Update.class));
+            } catch (JsonProcessingException e) {
+                log.error("Failed to read stored update {}", updateId, e);
+                unreadable.add(updateId);
+            }
+        });
+        clusterRepository.markHandled(unreadable);
+        return updates;
+    }
+
+    public void markHandled(Collection<Long> updateIds) {
+        clusterRepository.markHandled(updateIds);
+    }
+
+    public void release(Collection<Long> updateIds) {
+        clusterRepository.releaseUpdates(updateIds);
+    }
+
+    public void renewClaims(String nodeId) {
+        clusterRepository.renewClaims(nodeId);
+    }
+
+    public void awaitOffered(Duration timeout) throws InterruptedException {
+        long nanos = timeout.toNanos();
+        lock.lock();
+        try {
+            while (!hasOffered && nanos > 0) {
+                nanos = offered.awaitNanos(nanos);
+            }
+            hasOffered = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bot.cluster.heartbeat-interval:5s}")
+    public void purge() {
+        try {
+            clusterRepository.deleteOldUpdates(botProperties.getCluster().getDedupeWindow());
+            clusterRepository.deleteDeadNodes(botProperties.getCluster().getNodeTimeout());
+        } catch (DataAccessException e) {
+            log.error("Failed to purge update inbox", e);
+        }
+    }
+
+}
@@ -0,0 +1,538 @@
+package kg.obukhov.wakethemallbot.store;
+
+import kg.obukhov.wakethemallbot.model.ChatEntity;
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
+import kg.obukhov.wakethemallbot.repository.MembershipStore;
+import kg.obukhov.wakethemallbot.exception.StorageException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+public class EmbeddedMembershipStore implements MembershipStore, AutoCloseable {
+
+    private static final String LOG_FILE = "membership.log";
+    private static final String SNAPSHOT_FILE = "membership.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x57534E50;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int MAX_RECORD_SIZE = 4096;
+    private static final long EPOCH_OFFSET_SECONDS = 1_577_836_800L;
+    private static final int NEVER_VERIFIED = 0;
+    private static final long NO_PRIVATE_CHAT = 0;
+
+    private static final byte PUT_CHAT = 1;
+    private static final byte PUT_USER = 2;
+    private static final byte ADD_MEMBER = 3;
+    private static final byte REMOVE_MEMBER = 4;
+    private static final byte VERIFY_MEMBER = 5;
+    private static final byte REMOVE_CHAT = 6;
+
+    private final Path directory;
+    private final LongObjectMap<ChatRecord> chats = new LongObjectMap<>();
+    private final LongObjectMap<UserRecord> users = new LongObjectMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_SIZE);
+    private final MembershipLog membershipLog;
+    private long generation;
+
+    public EmbeddedMembershipStore(Path directory, long logSize) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.generation = readSnapshot(directory.resolve(SNAPSHOT_FILE));
+        this.membershipLog = new MembershipLog(directory.resolve(LOG_FILE), logSize);
+        if (membershipLog.getGeneration() == generation) {
+            int replayed = membershipLog.replay(this::replay);
+            log.info("Loaded {} chats and {} users from {}, replayed {} log records",
+                    chats.size(), users.size(), directory, replayed);
+        } else {
+            membershipLog.reset(generation);
+            log.info("Loaded {} chats and {} users from {}", chats.size(), users.size(), directory);
+        }
+    }
+
+    public boolean isEmpty() {
+        lock.readLock().lock();
+        try {
+            return chats.size() == 0 && users.size() == 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<MentionTarget> findAllByChatId(Long chatId) {
+        lock.readLock().lock();
+        try {
+            ChatRecord chat = chats.get(chatId);
+            if (chat == null) {
+                return List.of();
+            }
+            List<MentionTarget> targets = new ArrayList<>(chat.size);
+            for (int i = 0; i < chat.size; i++) {
+                long userId = chat.members[i];
+                UserRecord user = users.get(userId);
+                if (user != null) {
+                    targets.add(new MentionTarget(userId, user.firstName(), user.lastName(), user.userName(),
+                            user.privateChatId() == NO_PRIVATE_CHAT ? null : user.privateChatId()));
+                }
+            }
+            return targets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Long findPrivateChatId(Long userId) {
+        lock.readLock().lock();
+        try {
+            UserRecord user = users.get(userId);
+            return user == null || user.privateChatId() == NO_PRIVATE_CHAT ? null : user.privateChatId();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<ChatEntity> chatEntities, Collection<TelegramUserEntity> userEntities,
+                          Collection<MembershipKey> memberships) {
+        lock.writeLock().lock();
+        try {
+            for (ChatEntity chat : chatEntities) {
+                if (chats.get(chat.getId()) == null) {
+                    record(PUT_CHAT).putLong(chat.getId());
+                    putString(chat.getType());
+                    putString(chat.getTitle());
+                    append();
+                    putChat(chat.getId(), chat.getType(), chat.getTitle());
+                }
+            }
+            for (TelegramUserEntity user : userEntities) {
+                UserRecord existing = users.get(user.getId());
+                long privateChatId = user.getPrivateChatId() == null ? NO_PRIVATE_CHAT : user.getPrivateChatId();
+                if (existing != null && (privateChatId == NO_PRIVATE_CHAT || existing.privateChatId() == privateChatId)) {
+                    continue;
+                }
+                UserRecord updated = existing == null
+                        ? new UserRecord(user.getFirstName(), user.getLastName(), user.getUserName(), privateChatId)
+                        : new UserRecord(existing.firstName(), existing.lastName(), existing.userName(), privateChatId);
+                record(PUT_USER).putLong(user.getId());
+                putString(updated.firstName());
+                putString(updated.lastName());
+                putString(updated.userName());
+                record.putLong(updated.privateChatId());
+                append();
+                users.put(user.getId(), updated);
+            }
+            int now = now();
+            for (MembershipKey membership : memberships) {
+                addMember(membership, now);
+            }
+            membershipLog.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void importMemberships(Map<MembershipKey, Instant> verifiedAt) {
+        lock.writeLock().lock();
+        try {
+            verifiedAt.forEach((membership, verified) ->
+                    addMember(membership, verified == null ? NEVER_VERIFIED : toSeconds(verified)));
+            membershipLog.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addMember(MembershipKey membership, int verifiedAt) {
+        ChatRecord chat = chats.get(membership.chatId());
+        if (chat != null && users.get(membership.userId()) != null && chat.indexOf(membership.userId()) < 0) {
+            record(ADD_MEMBER).putLong(membership.userId()).putLong(membership.chatId()).putInt(verifiedAt);
+            append();
+            chat.add(membership.userId(), verifiedAt);
+        }
+    }
+
+    @Override
+    public int deleteAll(Collection<MembershipKey> memberships) {
+        lock.writeLock().lock();
+        try {
+            int deleted = 0;
+            for (MembershipKey membership : memberships) {
+                ChatRecord chat = chats.get(membership.chatId());
+                if (chat != null && chat.remove(membership.userId())) {
+                    record(REMOVE_MEMBER).putLong(membership.userId()).putLong(membership.chatId());
+                    append();
+                    deleted++;
+                }
+            }
+            membershipLog.force();
+            return deleted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int markVerified(Collection<MembershipKey> memberships) {
+        lock.writeLock().lock();
+        try {
+            int now = now();
+            int verified = 0;
+            for (MembershipKey membership : memberships) {
+                ChatRecord chat = chats.get(membership.chatId());
+                int index = chat == null ? -1 : chat.indexOf(membership.userId());
+                if (index >= 0) {
+                    record(VERIFY_MEMBER).putLong(membership.userId()).putLong(membership.chatId()).putInt(now);
+                    append();
+                    chat.verifiedAt[index] = now;
+                    verified++;
+                }
+            }
+            membershipLog.force();
+            return verified;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<MembershipKey> findLeastRecentlyVerified(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Candidate> oldest = new PriorityQueue<>(limit,
+                    Comparator.comparingInt(Candidate::verifiedAt).reversed());
+            chats.forEach((chatId, chat) -> {
+                if (chatId >= 0) {
+                    return;
+                }
+                for (int i = 0; i < chat.size; i++) {
+                    if (oldest.size() < limit) {
+                        oldest.add(new Candidate(chat.members[i], chatId, chat.verifiedAt[i]));
+                    } else if (chat.verifiedAt[i] < oldest.peek().verifiedAt()) {
+                        oldest.poll();
+                        oldest.add(new Candidate(chat.members[i], chatId, chat.verifiedAt[i]));
+                    }
+                }
+            });
+            return oldest.stream()
+                    .sorted(Comparator.comparingInt(Candidate::verifiedAt))
+                    .map(candidate -> new MembershipKey(candidate.userId(), candidate.chatId()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteChat(Long chatId) {
+        lock.writeLock().lock();
+        try {
+            if (chats.get(chatId) != null) {
+                record(REMOVE_CHAT).putLong(chatId);
+                append();
+                chats.remove(chatId);
+                membershipLog.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int deleteEmptyChats() {
+        lock.writeLock().lock();
+        try {
+            List<Long> empty = new ArrayList<>();
+            chats.forEach((chatId, chat) -> {
+                if (chatId < 0 && chat.size == 0) {
+                    empty.add(chatId);
+                }
+            });
+            for (Long chatId : empty) {
+                record(REMOVE_CHAT).putLong(chatId);
+                append();
+                chats.remove(chatId);
+            }
+            membershipLog.force();
+            return empty.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${bot.storage.embedded.snapshot-interval:10m}",
+            fixedDelayString = "${bot.storage.embedded.snapshot-interval:10m}")
+    public void snapshot() {
+        lock.writeLock().lock();
+        try {
+            compact();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to write membership snapshot to {}", directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        int logBytes = membershipLog.getUsedBytes();
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeInt(SNAPSHOT_VERSION);
+            output.writeLong(generation + 1);
+            output.writeInt(chats.size());
+            chats.forEach((chatId, chat) -> writeChat(output, chatId, chat));
+            output.writeInt(users.size());
+            users.forEach((userId, user) -> writeUser(output, userId, user));
+            output.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        generation++;
+        membershipLog.reset(generation);
+        log.info("Compacted {} bytes of membership log into a snapshot of {} chats and {} users in {} ms",
+                logBytes, chats.size(), users.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void writeChat(DataOutputStream output, long chatId, ChatRecord chat) {
+        try {
+            output.writeLong(chatId);
+            writeString(output, chat.type);
+            writeString(output, chat.title);
+            output.writeInt(chat.size);
+            for (int i = 0; i < chat.size; i++) {
+                output.writeLong(chat.members[i]);
+                output.writeInt(chat.verifiedAt[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeUser(DataOutputStream output, long userId, UserRecord user) {
+        try {
+            output.writeLong(userId);
+            writeString(output, user.firstName());
+            writeString(output, user.lastName());
+            writeString(output, user.userName());
+            output.writeLong(user.privateChatId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long readSnapshot(Path snapshot) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+            if (input.readInt() != SNAPSHOT_MAGIC || input.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported membership snapshot " + snapshot);
+            }
+            long snapshotGeneration = input.readLong();
+            int chatCount = input.readInt();
+            for (int i = 0; i < chatCount; i++) {
+                long chatId = input.readLong();
+                ChatRecord chat = putChat(chatId, readString(input), readString(input));
+                int size = input.readInt();
+                chat.ensureCapacity(size);
+                for (int j = 0; j < size; j++) {
+                    chat.members[j] = input.readLong();
+                    chat.verifiedAt[j] = input.readInt();
+                }
+                chat.size = size;
+            }
+            int userCount = input.readInt();
+            for (int i = 0; i < userCount; i++) {
+                long userId = input.readLong();
+                users.put(userId, new UserRecord(readString(input), readString(input), readString(input), input.readLong()));
+            }
+            return snapshotGeneration;
+        }
+    }
+
+    private void replay(ByteBuffer entry) {
+        byte type = entry.get();
+        switch (type) {
+            case PUT_CHAT -> {
+                long chatId = entry.getLong();
+                if (chats.get(chatId) == null) {
+                    putChat(chatId, getString(entry), getString(entry));
+                }
+            }
+            case PUT_USER -> users.put(entry.getLong(),
+                    new UserRecord(getString(entry), getString(entry), getString(entry), entry.getLong()));
+            case ADD_MEMBER -> {
+                long userId = entry.getLong();
+                ChatRecord chat = chats.get(entry.getLong());
+                if (chat != null && chat.indexOf(userId) < 0) {
+                    chat.add(userId, entry.getInt());
+                }
+            }
+            case REMOVE_MEMBER -> {
+                long userId = entry.getLong();
+                ChatRecord chat = chats.get(entry.getLong());
+                if (chat != null) {
+                    chat.remove(userId);
+                }
+            }
+            case VERIFY_MEMBER -> {
+                long userId = entry.getLong();
+                ChatRecord chat = chats.get(entry.getLong());
+                int index = chat == null ? -1 : chat.indexOf(userId);
+                if (index >= 0) {
+                    chat.verifiedAt[index] = entry.getInt();
+                }
+            }
+            case REMOVE_CHAT -> chats.remove(entry.getLong());
+            default -> throw new StorageException("Unknown membership log record type " + type);
+        }
+    }
+
+    private ChatRecord putChat(long chatId, String type, String title) {
+        ChatRecord chat = new ChatRecord(type, title);
+        chats.put(chatId, chat);
+        return chat;
+    }
+
+    private ByteBuffer record(byte type) {
+        return record.clear().put(type);
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            record.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        record.putShort((short) bytes.length).put(bytes);
+    }
+
+    private void append() {
+        record.flip();
+        if (membershipLog.append(record)) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            throw new StorageException("Membership log is full and compaction failed", e);
+        }
+        if (!membershipLog.append(record)) {
+            throw new StorageException("Membership log record does not fit into an empty log");
+        }
+    }
+
+    private static String getString(ByteBuffer entry) {
+        short length = entry.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        entry.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static int now() {
+        return toSeconds(Instant.now());
+    }
+
+    private static int toSeconds(Instant instant) {
+        return (int) Math.max(NEVER_VERIFIED + 1, instant.getEpochSecond() - EPOCH_OFFSET_SECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            membershipLog.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class ChatRecord {
+
+        private final String type;
+        private final String title;
+        private long[] members = new long[4];
+        private int[] verifiedAt = new int[4];
+        private int size;
+
+        private ChatRecord(String type, String title) {
+            this.type = type;
+            this.title = title;
+        }
+
+        private int indexOf(long userId) {
+            return Arrays.binarySearch(members, 0, size, userId);
+        }
+
+        private void add(long userId, int verified) {
+            int index = -indexOf(userId) - 1;
+            ensureCapacity(size + 1);
+            System.arraycopy(members, index, members, index + 1, size - index);
+            System.arraycopy(verifiedAt, index, verifiedAt, index + 1, size - index);
+            members[index] = userId;
+            verifiedAt[index] = verified;
+            size++;
+        }
+
+        private boolean remove(long userId) {
+            int index = indexOf(userId);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(members, index + 1, members, index, size - index - 1);
+            System.arraycopy(verifiedAt, index + 1, verifiedAt, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > members.length) {
+                int grown = Math.max(capacity, members.length + (members.length >> 1));
+                members = Arrays.copyOf(members, grown);
+                verifiedAt = Arrays.copyOf(verifiedAt, grown);
+            }
+        }
+
+    }
+
+    private record UserRecord(String firstName, String lastName, String userName, long privateChatId) {
+    }
+
+    private record Candidate(long userId, long chatId, int verifiedAt) {
+    }
+
+}
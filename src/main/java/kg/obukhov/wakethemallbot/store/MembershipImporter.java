@@ -0,0 +1,112 @@
+package kg.obukhov.wakethemallbot.store;
+
+import kg.obukhov.wakethemallbot.model.ChatEntity;
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+public class MembershipImporter {
+
+    private static final String SELECT_CHATS = "SELECT id, type, title FROM chat";
+    private static final String SELECT_USERS =
+            "SELECT id, first_name, last_name, user_name, private_chat_id FROM telegram_user";
+    private static final String SELECT_USER_CHATS = "SELECT user_id, chat_id, last_verified_at FROM user_chat";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public MembershipImporter(DataSource dataSource, PlatformTransactionManager transactionManager, int batchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(batchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.batchSize = batchSize;
+    }
+
+    public void importInto(EmbeddedMembershipStore store) {
+        long start = System.nanoTime();
+        int[] counts = transactionTemplate.execute(status -> new int[]{
+                importChats(store),
+                importUsers(store),
+                importMemberships(store)
+        });
+        log.info("Imported {} chats, {} users and {} memberships from the database in {} ms",
+                counts[0], counts[1], counts[2], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int importChats(EmbeddedMembershipStore store) {
+        List<ChatEntity> batch = new ArrayList<>(batchSize);
+        int[] count = {0};
+        jdbcTemplate.query(SELECT_CHATS, resultSet -> {
+            ChatEntity chat = new ChatEntity();
+            chat.setId(resultSet.getLong("id"));
+            chat.setType(resultSet.getString("type"));
+            chat.setTitle(resultSet.getString("title"));
+            batch.add(chat);
+            if (batch.size() == batchSize) {
+                count[0] += flush(batch, () -> store.insertAll(batch, List.of(), List.of()));
+            }
+        });
+        return count[0] + flush(batch, () -> store.insertAll(batch, List.of(), List.of()));
+    }
+
+    private int importUsers(EmbeddedMembershipStore store) {
+        List<TelegramUserEntity> batch = new ArrayList<>(batchSize);
+        int[] count = {0};
+        jdbcTemplate.query(SELECT_USERS, resultSet -> {
+            TelegramUserEntity user = new TelegramUserEntity();
+            user.setId(resultSet.getLong("id"));
+            user.setFirstName(resultSet.getString("first_name"));
+            user.setLastName(resultSet.getString("last_name"));
+            user.setUserName(resultSet.getString("user_name"));
+            user.setPrivateChatId(resultSet.getObject("private_chat_id", Long.class));
+            batch.add(user);
+            if (batch.size() == batchSize) {
+                count[0] += flush(batch, () -> store.insertAll(List.of(), batch, List.of()));
+            }
+        });
+        return count[0] + flush(batch, () -> store.insertAll(List.of(), batch, List.of()));
+    }
+
+    private int importMemberships(EmbeddedMembershipStore store) {
+        Map<MembershipKey, Instant> batch = new LinkedHashMap<>(batchSize);
+        int[] count = {0};
+        jdbcTemplate.query(SELECT_USER_CHATS, resultSet -> {
+            Timestamp verifiedAt = resultSet.getTimestamp("last_verified_at");
+            batch.put(new MembershipKey(resultSet.getLong("user_id"), resultSet.getLong("chat_id")),
+                    verifiedAt == null ? null : verifiedAt.toInstant());
+            if (batch.size() == batchSize) {
+                count[0] += flush(batch, () -> store.importMemberships(batch));
+            }
+        });
+        return count[0] + flush(batch, () -> store.importMemberships(batch));
+    }
+
+    private static int flush(Collection<?> batch, Runnable insert) {
+        int size = batch.size();
+        if (size > 0) {
+            insert.run();
+            batch.clear();
+        }
+        return size;
+    }
+
+    private static int flush(Map<?, ?> batch, Runnable insert) {
+        return flush(batch.keySet(), insert);
+    }
+
+}
@@ -0,0 +1,100 @@
+package kg.obukhov.wakethemallbot.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+class MembershipLog implements AutoCloseable {
+
+    private static final int MAGIC = 0x574C4F47;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final long NO_GENERATION = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32C checksum = new CRC32C();
+    private int position = HEADER_SIZE;
+
+    MembershipLog(Path path, long size) throws IOException {
+        long mappedSize = Math.max(size, Files.exists(path) ? Files.size(path) : 0);
+        if (mappedSize > Integer.MAX_VALUE) {
+            throw new IOException("Membership log " + path + " is larger than 2 GB");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize);
+    }
+
+    long getGeneration() {
+        return buffer.getInt(0) == MAGIC ? buffer.getLong(8) : NO_GENERATION;
+    }
+
+    int getUsedBytes() {
+        return position;
+    }
+
+    int replay(Consumer<ByteBuffer> consumer) {
+        int records = 0;
+        position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            ByteBuffer record = buffer.slice(position + RECORD_HEADER_SIZE, length);
+            if (checksum(record) != buffer.getInt(position + 4)) {
+                break;
+            }
+            consumer.accept(record);
+            position += RECORD_HEADER_SIZE + length;
+            records++;
+        }
+        return records;
+    }
+
+    boolean append(ByteBuffer record) {
+        int length = record.remaining();
+        int end = position + RECORD_HEADER_SIZE + length;
+        if (end + Integer.BYTES > buffer.capacity()) {
+            return false;
+        }
+        buffer.putInt(end, 0);
+        buffer.put(position + RECORD_HEADER_SIZE, record, record.position(), length);
+        buffer.putInt(position + 4, checksum(record));
+        buffer.putInt(position, length);
+        position = end;
+        return true;
+    }
+
+    void reset(long generation) {
+        buffer.putInt(HEADER_SIZE, 0);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, 0);
+        buffer.putLong(8, generation);
+        buffer.force(0, HEADER_SIZE + Integer.BYTES);
+        position = HEADER_SIZE;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    private int checksum(ByteBuffer record) {
+        checksum.reset();
+        checksum.update(record.duplicate());
+        return (int) checksum.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+}
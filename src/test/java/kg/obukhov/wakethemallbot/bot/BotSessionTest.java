@@ -0,0 +1,64 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.loadtest.FakeTelegramApi;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import kg.obukhov.wakethemallbot.service.InMemoryChatUserService;
+import kg.obukhov.wakethemallbot.service.InMemoryMentionOutbox;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.generics.BotSession;
+import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotSessionTest {
+
+    private static final long CHAT_ID = -100L;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void handlesUpdatesAfterSessionIsRestarted() throws Exception {
+        InMemoryChatUserService chatUserService = new InMemoryChatUserService();
+        chatUserService.putRoster(CHAT_ID, List.of(
+                new MentionTarget(1L, "Author", null, "author", null),
+                new MentionTarget(2L, "Member", null, "member", null)));
+
+        try (FakeTelegramApi api = new FakeTelegramApi(Duration.ZERO, 0, 1);
+             Bot bot = new Bot(chatUserService, new InMemoryMentionOutbox(), properties(api.getBaseUrl()),
+                     new SimpleMeterRegistry())) {
+            TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+            botsApi.registerBot(bot).stop();
+
+            BotSession session = botsApi.registerBot(bot);
+            try {
+                api.enqueueMessage(CHAT_ID, 1L, "/all", true);
+                awaitReplies(api);
+            } finally {
+                session.stop();
+            }
+            assertEquals(1, api.getCalls("sendMessage"));
+        }
+    }
+
+    private static void awaitReplies(FakeTelegramApi api) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (api.getAwaitingReplies() > 0) {
+            assertTrue(System.nanoTime() < deadline, "Mention was not answered after the session restart");
+            Thread.sleep(20);
+        }
+    }
+
+    private static BotProperties properties(String apiUrl) {
+        BotProperties properties = new BotProperties();
+        properties.setUsername("test_bot");
+        properties.setToken("0:test");
+        properties.setApiUrl(apiUrl);
+        return properties;
+    }
+
+}
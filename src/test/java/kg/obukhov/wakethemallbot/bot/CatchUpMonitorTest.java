@@ -0,0 +1,36 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatchUpMonitorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger flushes = new AtomicInteger();
+    private final CatchUpMonitor monitor = new CatchUpMonitor(Duration.ofSeconds(10), new BotMetrics(registry),
+            flushes::incrementAndGet);
+
+    @Test
+    void finishesOnFirstLiveUpdate() {
+        monitor.record(Duration.ofHours(1), true);
+        monitor.record(Duration.ofMinutes(1), false);
+        monitor.record(null, false);
+        assertTrue(monitor.isCatchingUp());
+        assertEquals(0, flushes.get());
+
+        monitor.record(Duration.ofSeconds(1), false);
+        monitor.record(Duration.ofHours(1), true);
+
+        assertFalse(monitor.isCatchingUp());
+        assertEquals(1, flushes.get());
+        assertEquals(1, registry.get("bot.catchup.duration").timer().count());
+        assertEquals(1.0, registry.get("bot.catchup.updates").tag("outcome", "replayed").counter().count());
+        assertEquals(1.0, registry.get("bot.catchup.updates").tag("outcome", "expired").counter().count());
+    }
+
+}
@@ -0,0 +1,67 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.MessageEntity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandDetectorTest {
+
+    private final CommandDetector detector = new CommandDetector(new BotProperties.Triggers());
+
+    @Test
+    void detectsTriggersInText() {
+        assertEquals(MentionCommand.ALL, detector.detect(message(-1L, "/all")));
+        assertEquals(MentionCommand.ALL, detector.detect(message(-1L, "Привет, @ЁУ!")));
+        assertEquals(MentionCommand.ADMINS, detector.detect(message(-1L, "hey /Admins, look")));
+        assertEquals(MentionCommand.ALL, detector.detect(message(-1L, "/admins and /everyone")));
+    }
+
+    @Test
+    void ignoresTriggersInsideWords() {
+        assertNull(detector.detect(message(-1L, "@allison")));
+        assertNull(detector.detect(message(-1L, "/allow me")));
+        assertNull(detector.detect(message(-1L, "just a message")));
+        assertNull(detector.detect(message(-1L, null)));
+    }
+
+    @Test
+    void detectsBotCommandEntityWithBotName() {
+        Message message = message(-1L, "/admins@WakeThemAllBot");
+        MessageEntity entity = new MessageEntity();
+        entity.setType("bot_command");
+        entity.setOffset(0);
+        entity.setLength(message.getText().length());
+        message.setEntities(List.of(entity));
+
+        assertEquals(MentionCommand.ADMINS, detector.detect(message));
+    }
+
+    @Test
+    void appliesPerChatTriggers() {
+        BotProperties.Triggers properties = new BotProperties.Triggers();
+        BotProperties.Triggers.ChatTriggers triggers = new BotProperties.Triggers.ChatTriggers();
+        triggers.getAll().add("народ");
+        properties.getChats().put(-1L, triggers);
+        CommandDetector chatDetector = new CommandDetector(properties);
+
+        assertEquals(MentionCommand.ALL, chatDetector.detect(message(-1L, "Народ, идём?")));
+        assertNull(chatDetector.detect(message(-2L, "Народ, идём?")));
+        assertEquals(MentionCommand.ALL, chatDetector.detect(message(-2L, "/all")));
+    }
+
+    private static Message message(Long chatId, String text) {
+        Message message = new Message();
+        Chat chat = new Chat();
+        chat.setId(chatId);
+        message.setChat(chat);
+        message.setText(text);
+        return message;
+    }
+
+}
@@ -0,0 +1,113 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FloodLimiterTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 10_000;
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+
+    @Test
+    void allowsOneMentionPerWindowByDefault() {
+        FloodLimiter limiter = new FloodLimiter(new BotProperties.Flood(), clock::get);
+
+        assertTrue(limiter.tryAcquire(-1L));
+        assertFalse(limiter.tryAcquire(-1L));
+        assertTrue(limiter.tryAcquire(-2L));
+
+        clock.addAndGet(Duration.ofSeconds(5).toNanos() - 1);
+        assertFalse(limiter.tryAcquire(-1L));
+
+        clock.incrementAndGet();
+        assertTrue(limiter.tryAcquire(-1L));
+    }
+
+    @Test
+    void appliesPerChatLimit() {
+        BotProperties.Flood properties = new BotProperties.Flood();
+        BotProperties.Flood.Limit limit = new BotProperties.Flood.Limit();
+        limit.setDuration(Duration.ofSeconds(10));
+        limit.setLimit(3);
+        properties.getChats().put(-1L, limit);
+        FloodLimiter limiter = new FloodLimiter(properties, clock::get);
+
+        assertTrue(limiter.tryAcquire(-1L));
+        assertTrue(limiter.tryAcquire(-1L));
+        assertTrue(limiter.tryAcquire(-1L));
+        assertFalse(limiter.tryAcquire(-1L));
+
+        assertTrue(limiter.tryAcquire(-2L));
+        assertFalse(limiter.tryAcquire(-2L));
+    }
+
+    @Test
+    void evictsIdleChats() {
+        FloodLimiter limiter = new FloodLimiter(new BotProperties.Flood(), clock::get);
+        limiter.tryAcquire(-1L);
+        limiter.tryAcquire(-2L);
+
+        limiter.evictIdle();
+        assertEquals(2, limiter.size());
+
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        limiter.evictIdle();
+        assertEquals(0, limiter.size());
+        assertTrue(limiter.tryAcquire(-1L));
+    }
+
+    @Test
+    void admitsExactlyLimitUnderContention() throws Exception {
+        BotProperties.Flood properties = new BotProperties.Flood();
+        properties.getDefaults().setLimit(5);
+        FloodLimiter limiter = new FloodLimiter(properties, clock::get);
+        int chats = 64;
+        AtomicInteger[] accepted = new AtomicInteger[chats];
+        for (int i = 0; i < chats; i++) {
+            accepted[i] = new AtomicInteger();
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                        int chat = attempt % chats;
+                        if (limiter.tryAcquire(-1L - chat)) {
+                            accepted[chat].incrementAndGet();
+                        }
+                        if (attempt % 1_000 == 0) {
+                            limiter.evictIdle();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        for (AtomicInteger count : accepted) {
+            assertEquals(5, count.get());
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MentionRendererTest {
+
+    private final MentionRenderer renderer = new MentionRenderer(new BotProperties.MentionCache());
+
+    @Test
+    void keepsSmallRosterInOneChunk() {
+        List<MentionTarget> roster = roster(3);
+
+        assertEquals(List.of(renderer.render(roster)), renderer.renderChunks(roster, 4096, 50));
+    }
+
+    @Test
+    void splitsByMentionCount() {
+        List<String> chunks = renderer.renderChunks(roster(120), 4096, 50);
+
+        assertEquals(3, chunks.size());
+        assertEquals(List.of(50, 50, 20), chunks.stream().map(MentionRendererTest::countMentions).toList());
+    }
+
+    @Test
+    void splitsAtMentionBoundariesWithinLength() {
+        List<MentionTarget> roster = roster(5_000);
+        int maxLength = 4096;
+
+        List<String> chunks = renderer.renderChunks(roster, maxLength, Integer.MAX_VALUE);
+
+        assertTrue(chunks.size() > 1);
+        chunks.forEach(chunk -> assertTrue(chunk.length() <= maxLength));
+        assertEquals(renderer.render(roster), String.join(" ", chunks));
+    }
+
+    private static List<MentionTarget> roster(int size) {
+        List<MentionTarget> roster = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            roster.add(new MentionTarget(1_000_000L + i, "User.name", i % 2 == 0 ? null : "Last-" + i, "user" + i, null));
+        }
+        return roster;
+    }
+
+    private static int countMentions(String chunk) {
+        return chunk.split("tg://user\\?id=", -1).length - 1;
+    }
+
+}
@@ -0,0 +1,113 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.service.InMemoryChatUserService;
+import kg.obukhov.wakethemallbot.service.InMemoryMentionOutbox;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.ChatMemberUpdated;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMember;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberBanned;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberLeft;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberMember;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMemberRestricted;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RosterUpdateTest {
+
+    private static final Chat GROUP = new Chat(-100L, "supergroup");
+    private static final User USER = new User(7L, "Member", false);
+
+    private final InMemoryChatUserService chatUserService = new InMemoryChatUserService();
+    private final Bot bot = new Bot(chatUserService, new InMemoryMentionOutbox(), properties(),
+            new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        bot.close();
+    }
+
+    @Test
+    void tracksJoinsAndLeavesFromChatMemberUpdates() {
+        bot.handleUpdate(chatMemberUpdate(new ChatMemberLeft(USER), new ChatMemberMember(USER)));
+        assertTrue(chatUserService.isMember(GROUP.getId(), USER.getId()));
+
+        bot.handleUpdate(chatMemberUpdate(new ChatMemberMember(USER), new ChatMemberBanned(USER, 0)));
+        assertFalse(chatUserService.isMember(GROUP.getId(), USER.getId()));
+    }
+
+    @Test
+    void treatsRestrictedUsersByMembershipFlag() {
+        ChatMemberRestricted restricted = new ChatMemberRestricted();
+        restricted.setUser(USER);
+        restricted.setIsMember(true);
+        bot.handleUpdate(chatMemberUpdate(new ChatMemberLeft(USER), restricted));
+        assertTrue(chatUserService.isMember(GROUP.getId(), USER.getId()));
+
+        ChatMemberRestricted departed = new ChatMemberRestricted();
+        departed.setUser(USER);
+        departed.setIsMember(false);
+        bot.handleUpdate(chatMemberUpdate(restricted, departed));
+        assertFalse(chatUserService.isMember(GROUP.getId(), USER.getId()));
+    }
+
+    @Test
+    void tracksJoinAndLeaveServiceMessages() {
+        Message joined = serviceMessage();
+        joined.setNewChatMembers(List.of(USER, new User(8L, "Bot", true)));
+        bot.handleUpdate(update(joined));
+        assertTrue(chatUserService.isMember(GROUP.getId(), USER.getId()));
+        assertFalse(chatUserService.isMember(GROUP.getId(), 8L));
+
+        Message left = serviceMessage();
+        left.setFrom(USER);
+        left.setLeftChatMember(USER);
+        bot.handleUpdate(update(left));
+        assertFalse(chatUserService.isMember(GROUP.getId(), USER.getId()));
+    }
+
+    private static Update chatMemberUpdate(ChatMember oldMember, ChatMember newMember) {
+        ChatMemberUpdated chatMember = new ChatMemberUpdated();
+        chatMember.setChat(GROUP);
+        chatMember.setFrom(USER);
+        chatMember.setDate((int) Instant.now().getEpochSecond());
+        chatMember.setOldChatMember(oldMember);
+        chatMember.setNewChatMember(newMember);
+        Update update = new Update();
+        update.setChatMember(chatMember);
+        return update;
+    }
+
+    private static Message serviceMessage() {
+        Message message = new Message();
+        message.setMessageId(1);
+        message.setChat(GROUP);
+        message.setFrom(new User(1L, "Admin", false));
+        message.setDate((int) Instant.now().getEpochSecond());
+        return message;
+    }
+
+    private static Update update(Message message) {
+        Update update = new Update();
+        update.setMessage(message);
+        return update;
+    }
+
+    private static BotProperties properties() {
+        BotProperties properties = new BotProperties();
+        properties.setUsername("test_bot");
+        properties.setToken("0:test");
+        properties.setApiUrl("http://127.0.0.1:9/bot");
+        return properties;
+    }
+
+}
@@ -0,0 +1,85 @@
+package kg.obukhov.wakethemallbot.bot;
+
+import kg.obukhov.wakethemallbot.loadtest.FakeTelegramApi;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.groupadministration.GetChatMember;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.chatmember.ChatMember;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelegramApiClientTest {
+
+    private static final long CHAT_ID = -100L;
+
+    private FakeTelegramApi api;
+    private TelegramApiClient client;
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        api.close();
+    }
+
+    @Test
+    void returnsDeserializedResult() throws Exception {
+        start(0);
+
+        Message message = client.execute(new SendMessage(String.valueOf(CHAT_ID), "Привет"));
+        ChatMember member = client.execute(new GetChatMember(String.valueOf(CHAT_ID), 42L));
+
+        assertEquals(CHAT_ID, message.getChatId());
+        assertEquals("Привет", message.getText());
+        assertEquals(42L, member.getUser().getId());
+        assertEquals(1, api.getCalls("sendMessage"));
+    }
+
+    @Test
+    void exposesRetryAfterOfTooManyRequests() throws Exception {
+        start(1);
+
+        TelegramApiRequestException exception = assertThrows(TelegramApiRequestException.class,
+                () -> client.execute(new SendMessage(String.valueOf(CHAT_ID), "Привет")));
+
+        assertEquals(429, exception.getErrorCode());
+        assertEquals(7, exception.getParameters().getRetryAfter());
+    }
+
+    @Test
+    void exposesErrorResponse() throws Exception {
+        start(0);
+        api.failMethod("sendMessage", 403, "Forbidden: bot was blocked by the user");
+
+        TelegramApiRequestException exception = assertThrows(TelegramApiRequestException.class,
+                () -> client.execute(new SendMessage("1", "Привет")));
+
+        assertEquals(403, exception.getErrorCode());
+        assertEquals("Forbidden: bot was blocked by the user", exception.getApiResponse());
+        assertNull(exception.getParameters());
+    }
+
+    @Test
+    void wrapsConnectionFailure() throws Exception {
+        start(0);
+        api.close();
+
+        TelegramApiException exception = assertThrows(TelegramApiException.class,
+                () -> client.execute(new SendMessage(String.valueOf(CHAT_ID), "Привет")));
+
+        assertFalse(exception instanceof TelegramApiRequestException);
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+
+    private void start(double tooManyRequestsRate) throws IOException {
+        api = new FakeTelegramApi(Duration.ZERO, tooManyRequestsRate, 7);
+        client = new TelegramApiClient(api.getBaseUrl() + "0:test/");
+    }
+
+}
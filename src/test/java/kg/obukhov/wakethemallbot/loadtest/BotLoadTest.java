@@ -0,0 +1,130 @@
+package kg.obukhov.wakethemallbot.loadtest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kg.obukhov.wakethemallbot.bot.Bot;
+import kg.obukhov.wakethemallbot.bot.MentionOutboxWorker;
+import kg.obukhov.wakethemallbot.config.BotConfiguration;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import kg.obukhov.wakethemallbot.service.InMemoryChatUserService;
+import kg.obukhov.wakethemallbot.service.InMemoryMentionOutbox;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.generics.BotSession;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class BotLoadTest {
+
+    private static final int CHATS = Integer.getInteger("loadtest.chats", 20);
+    private static final int ROSTER_SIZE = Integer.getInteger("loadtest.roster-size", 30);
+    private static final int MENTIONS_PER_CHAT = Integer.getInteger("loadtest.mentions-per-chat", 3);
+    private static final int MESSAGES_PER_MENTION = Integer.getInteger("loadtest.messages-per-mention", 5);
+    private static final Duration LATENCY = Duration.ofMillis(Long.getLong("loadtest.latency-ms", 5));
+    private static final double TOO_MANY_REQUESTS_RATE = Double.parseDouble(System.getProperty("loadtest.too-many-requests-rate", "0.005"));
+    private static final Duration TIMEOUT = Duration.ofSeconds(Long.getLong("loadtest.timeout-seconds", 120));
+    private static final Duration QUIET_PERIOD = Duration.ofMillis(500);
+
+    @Test
+    void repliesToEveryMentionInBurst() throws Exception {
+        InMemoryChatUserService chatUserService = new InMemoryChatUserService();
+        InMemoryMentionOutbox mentionOutbox = new InMemoryMentionOutbox();
+        List<List<MentionTarget>> rosters = new ArrayList<>();
+        for (int chat = 1; chat <= CHATS; chat++) {
+            List<MentionTarget> roster = new ArrayList<>();
+            for (int member = 0; member < ROSTER_SIZE; member++) {
+                long userId = chat * 1_000_000L + member;
+                roster.add(new MentionTarget(userId, "User", String.valueOf(member), "user" + userId, userId));
+            }
+            chatUserService.putRoster(-(long) chat, roster);
+            rosters.add(roster);
+        }
+
+        try (FakeTelegramApi api = new FakeTelegramApi(LATENCY, TOO_MANY_REQUESTS_RATE, 1)) {
+            BotProperties properties = loadTestProperties(api.getBaseUrl());
+            BotConfiguration configuration = new BotConfiguration();
+            Bot bot = configuration.bot(chatUserService, mentionOutbox, Optional.empty(), Optional.empty(), properties,
+                    new SimpleMeterRegistry());
+            MentionOutboxWorker worker = configuration.mentionOutboxWorker(bot, mentionOutbox, chatUserService, properties);
+            worker.start();
+            BotSession session = configuration.botSession(bot, properties);
+            try {
+                long start = System.nanoTime();
+                int updates = 0;
+                for (int round = 0; round < MENTIONS_PER_CHAT; round++) {
+                    for (int chat = 1; chat <= CHATS; chat++) {
+                        List<MentionTarget> roster = rosters.get(chat - 1);
+                        for (int message = 0; message < MESSAGES_PER_MENTION; message++) {
+                            long authorId = roster.get((round + message) % ROSTER_SIZE).id();
+                            api.enqueueMessage(-chat, authorId, "просто сообщение " + message, false);
+                            updates++;
+                        }
+                        api.enqueueMessage(-chat, roster.get(round % ROSTER_SIZE).id(), "/all", true);
+                        updates++;
+                    }
+                }
+
+                int mentions = CHATS * MENTIONS_PER_CHAT;
+                long expectedPrivateMessages = (long) mentions * (ROSTER_SIZE - 1);
+                awaitQuiescence(api, expectedPrivateMessages);
+
+                LoadReport report = LoadReport.of(updates, mentions, Duration.ofNanos(api.getLastCallNanos() - start),
+                        api.getReplyLatencies(), api.getCalls(), api.getTooManyRequests());
+                log.info("Load test report for {} chats of {} members:\n{}", CHATS, ROSTER_SIZE, report);
+
+                assertEquals(mentions, report.replies());
+                assertEquals(expectedPrivateMessages, mentionOutbox.getEnqueuedCount());
+                assertEquals(expectedPrivateMessages, api.getPrivateMessages());
+                assertEquals(0, api.getCalls("getChatMember"));
+            } finally {
+                session.stop();
+                worker.close();
+                bot.close();
+            }
+        }
+    }
+
+    private static void awaitQuiescence(FakeTelegramApi api, long expectedPrivateMessages) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        Map<String, Long> lastCalls = Map.of();
+        long quietSince = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            Map<String, Long> calls = api.getCalls();
+            long now = System.nanoTime();
+            if (!calls.equals(lastCalls)) {
+                lastCalls = calls;
+                quietSince = now;
+                continue;
+            }
+            boolean done = api.getAwaitingReplies() == 0 && api.getPrivateMessages() >= expectedPrivateMessages;
+            if (done && now - quietSince >= QUIET_PERIOD.toNanos()) {
+                return;
+            }
+        }
+        fail("Load test did not finish in " + TIMEOUT + ", calls so far: " + api.getCalls()
+                + ", replies awaited: " + api.getAwaitingReplies());
+    }
+
+    private static BotProperties loadTestProperties(String apiUrl) {
+        BotProperties properties = new BotProperties();
+        properties.setUsername("load_test_bot");
+        properties.setToken("0:load-test");
+        properties.setApiUrl(apiUrl);
+        properties.getFanOut().setRequestsPerSecond(100_000);
+        properties.getFanOut().setBurst(100_000);
+        properties.getOutbound().setGlobalPerSecond(100_000);
+        properties.getOutbound().setChatPerSecond(100_000);
+        properties.getOutbound().setGroupPerMinute(100_000);
+        properties.getFlood().getDefaults().setLimit(100_000);
+        return properties;
+    }
+
+}
@@ -0,0 +1,298 @@
+package kg.obukhov.wakethemallbot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+public class FakeTelegramApi implements AutoCloseable {
+
+    private static final Duration MAX_POLL_WAIT = Duration.ofMillis(200);
+    private static final Set<String> THROTTLED_METHODS = Set.of("sendmessage", "getchatmember");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpServer server;
+    private final Duration latency;
+    private final double tooManyRequestsRate;
+    private final int retryAfterSeconds;
+
+    private final NavigableMap<Long, ObjectNode> updates = new TreeMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition updatesAdded = lock.newCondition();
+    private final AtomicLong updateIds = new AtomicLong(1);
+    private final AtomicInteger messageIds = new AtomicInteger(1);
+
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+    private final Map<String, ObjectNode> errors = new ConcurrentHashMap<>();
+    private final LongAdder tooManyRequests = new LongAdder();
+    private final LongAdder privateMessages = new LongAdder();
+    private final Map<MessageKey, Long> awaitingReply = new ConcurrentHashMap<>();
+    private final Queue<Long> replyLatencies = new ConcurrentLinkedQueue<>();
+    private final AtomicLong lastCallNanos = new AtomicLong();
+
+    public FakeTelegramApi(Duration latency, double tooManyRequestsRate, int retryAfterSeconds) throws IOException {
+        this.latency = latency;
+        this.tooManyRequestsRate = tooManyRequestsRate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/bot";
+    }
+
+    public void enqueueMessage(long chatId, long userId, String text, boolean expectReply) {
+        int messageId = messageIds.getAndIncrement();
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("message_id", messageId)
+                .put("date", Instant.now().getEpochSecond())
+                .put("text", text);
+        message.set("chat", chat(chatId));
+        message.set("from", user(userId));
+        if (text.startsWith("/")) {
+            int length = text.indexOf(' ') < 0 ? text.length() : text.indexOf(' ');
+            message.putArray("entities").addObject()
+                    .put("type", "bot_command")
+                    .put("offset", 0)
+                    .put("length", length);
+        }
+
+        lock.lock();
+        try {
+            long updateId = updateIds.getAndIncrement();
+            ObjectNode update = objectMapper.createObjectNode().put("update_id", updateId);
+            update.set("message", message);
+            updates.put(updateId, update);
+            if (expectReply) {
+                awaitingReply.put(new MessageKey(chatId, messageId), System.nanoTime());
+            }
+            updatesAdded.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void failMethod(String method, int errorCode, String description) {
+        errors.put(method.toLowerCase(Locale.ROOT), objectMapper.createObjectNode()
+                .put("ok", false)
+                .put("error_code", errorCode)
+                .put("description", description));
+    }
+
+    public long getCalls(String method) {
+        LongAdder counter = calls.get(method.toLowerCase(Locale.ROOT));
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public Map<String, Long> getCalls() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        calls.forEach((method, counter) -> snapshot.put(method, counter.sum()));
+        return snapshot;
+    }
+
+    public long getTooManyRequests() {
+        return tooManyRequests.sum();
+    }
+
+    public long getPrivateMessages() {
+        return privateMessages.sum();
+    }
+
+    public List<Long> getReplyLatencies() {
+        return List.copyOf(replyLatencies);
+    }
+
+    public long getLastCallNanos() {
+        return lastCallNanos.get();
+    }
+
+    public int getAwaitingReplies() {
+        return awaitingReply.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            JsonNode request = readBody(exchange.getRequestBody());
+
+            if (method.equals("getupdates")) {
+                respond(exchange, 200, ok(getUpdates(request)));
+                return;
+            }
+
+            calls.computeIfAbsent(method, ignored -> new LongAdder()).increment();
+            if (!latency.isZero()) {
+                Thread.sleep(latency);
+            }
+            ObjectNode error = errors.get(method);
+            if (error != null) {
+                respond(exchange, error.path("error_code").asInt(), error);
+                return;
+            }
+            if (THROTTLED_METHODS.contains(method) && ThreadLocalRandom.current().nextDouble() < tooManyRequestsRate) {
+                tooManyRequests.increment();
+                respond(exchange, 429, tooManyRequests());
+                return;
+            }
+            respond(exchange, 200, ok(answer(method, request)));
+            lastCallNanos.accumulateAndGet(System.nanoTime(), Math::max);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Fake API failed to handle {}", exchange.getRequestURI(), e);
+            respond(exchange, 500, objectMapper.createObjectNode()
+                    .put("ok", false)
+                    .put("error_code", 500)
+                    .put("description", "Internal Server Error"));
+        }
+    }
+
+    private JsonNode getUpdates(JsonNode request) throws InterruptedException {
+        long offset = request.path("offset").asLong(0);
+        int limit = request.path("limit").asInt(100);
+        long timeoutNanos = Math.min(Duration.ofSeconds(request.path("timeout").asLong(0)).toNanos(), MAX_POLL_WAIT.toNanos());
+
+        ArrayNode result = objectMapper.createArrayNode();
+        lock.lock();
+        try {
+            updates.headMap(offset, false).clear();
+            while (updates.isEmpty() && timeoutNanos > 0) {
+                timeoutNanos = updatesAdded.awaitNanos(timeoutNanos);
+            }
+            updates.values().stream().limit(limit).forEach(result::add);
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    private JsonNode answer(String method, JsonNode request) {
+        return switch (method) {
+            case "sendmessage" -> sendMessage(request);
+            case "getchatmember" -> objectMapper.createObjectNode()
+                    .put("status", "member")
+                    .set("user", user(request.path("user_id").asLong()));
+            case "getchatadministrators" -> objectMapper.createArrayNode().add(objectMapper.createObjectNode()
+                    .put("status", "creator")
+                    .put("is_anonymous", false)
+                    .set("user", user(1)));
+            case "getwebhookinfo" -> objectMapper.createObjectNode()
+                    .put("url", "")
+                    .put("has_custom_certificate", false)
+                    .put("pending_update_count", 0);
+            default -> objectMapper.getNodeFactory().booleanNode(true);
+        };
+    }
+
+    private JsonNode sendMessage(JsonNode request) {
+        long chatId = request.path("chat_id").asLong();
+        if (chatId > 0) {
+            privateMessages.increment();
+        }
+        JsonNode replyTo = request.path("reply_to_message_id");
+        if (replyTo.isNumber()) {
+            Long enqueuedNanos = awaitingReply.remove(new MessageKey(chatId, replyTo.asInt()));
+            if (enqueuedNanos != null) {
+                replyLatencies.add(System.nanoTime() - enqueuedNanos);
+            }
+        }
+
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("message_id", messageIds.getAndIncrement())
+                .put("date", Instant.now().getEpochSecond())
+                .put("text", request.path("text").asText());
+        message.set("chat", chat(chatId));
+        return message;
+    }
+
+    private ObjectNode chat(long chatId) {
+        ObjectNode chat = objectMapper.createObjectNode()
+                .put("id", chatId)
+                .put("type", chatId < 0 ? "supergroup" : "private");
+        if (chatId < 0) {
+            chat.put("title", "Load test chat " + -chatId);
+        }
+        return chat;
+    }
+
+    private ObjectNode user(long userId) {
+        return objectMapper.createObjectNode()
+                .put("id", userId)
+                .put("is_bot", false)
+                .put("first_name", "User " + userId);
+    }
+
+    private ObjectNode ok(JsonNode result) {
+        ObjectNode response = objectMapper.createObjectNode().put("ok", true);
+        response.set("result", result);
+        return response;
+    }
+
+    private ObjectNode tooManyRequests() {
+        ObjectNode response = objectMapper.createObjectNode()
+                .put("ok", false)
+                .put("error_code", 429)
+                .put("description", "Too Many Requests: retry after " + retryAfterSeconds);
+        response.putObject("parameters").put("retry_after", retryAfterSeconds);
+        return response;
+    }
+
+    private JsonNode readBody(InputStream body) throws IOException {
+        byte[] bytes = body.readAllBytes();
+        return bytes.length == 0 ? objectMapper.createObjectNode() : objectMapper.readTree(bytes);
+    }
+
+    private void respond(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record MessageKey(long chatId, int messageId) {
+    }
+
+}
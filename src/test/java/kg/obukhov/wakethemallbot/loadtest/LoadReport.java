@@ -0,0 +1,52 @@
+package kg.obukhov.wakethemallbot.loadtest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+public record LoadReport(int updates, int mentions, int replies, Duration elapsed, Duration p50, Duration p99,
+                         Map<String, Long> apiCalls, long tooManyRequests) {
+
+    public static LoadReport of(int updates, int mentions, Duration elapsed, List<Long> replyLatencies,
+                                Map<String, Long> apiCalls, long tooManyRequests) {
+        List<Long> sorted = replyLatencies.stream().sorted().toList();
+        return new LoadReport(updates, mentions, sorted.size(), elapsed, percentile(sorted, 0.50),
+                percentile(sorted, 0.99), apiCalls, tooManyRequests);
+    }
+
+    public double updatesPerSecond() {
+        return updates / seconds();
+    }
+
+    public double mentionsPerSecond() {
+        return replies / seconds();
+    }
+
+    public double apiCallsPerMention() {
+        long total = apiCalls.values().stream().mapToLong(Long::longValue).sum();
+        return mentions == 0 ? 0 : (double) total / mentions;
+    }
+
+    private double seconds() {
+        return Math.max(elapsed.toNanos(), 1) / 1e9;
+    }
+
+    private static Duration percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return Duration.ZERO;
+        }
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return Duration.ofNanos(sorted.get(Math.max(index, 0)));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("""
+                        updates: %d (%.1f/s), mentions: %d, replies: %d (%.1f/s) in %d ms
+                        update-to-reply latency: p50 %d ms, p99 %d ms
+                        api calls: %s, 429 responses: %d, calls per mention: %.1f""",
+                updates, updatesPerSecond(), mentions, replies, mentionsPerSecond(), elapsed.toMillis(),
+                p50.toMillis(), p99.toMillis(), apiCalls, tooManyRequests, apiCallsPerMention());
+    }
+
+}
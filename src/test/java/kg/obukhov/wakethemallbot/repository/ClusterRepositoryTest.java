@@ -0,0 +1,120 @@
+package kg.obukhov.wakethemallbot.repository;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class ClusterRepositoryTest {
+
+    private static final String SCHEMA = "cluster_repository_test";
+    private static final String NODE = "node";
+    private static final Set<Integer> SHARDS = Set.of(0, 1);
+    private static final Duration LEASE = Duration.ofHours(1);
+
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static ClusterRepository clusterRepository;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        String url = "jdbc:postgresql://%s:%s/%s?currentSchema=%s".formatted(env("DB_HOST", "localhost"),
+                env("DB_PORT", "5432"), env("DB_NAME", "wakethemall"), SCHEMA);
+        dataSource = new SingleConnectionDataSource(url, env("DB_USERNAME", "admin"), env("DB_PASSWORD", "admin"), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setDefaultSchema(SCHEMA);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+
+        clusterRepository = new ClusterRepository(jdbcTemplate);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (jdbcTemplate != null) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            dataSource.destroy();
+        }
+    }
+
+    @BeforeEach
+    void clearInbox() {
+        jdbcTemplate.update("DELETE FROM update_inbox");
+        assertTrue(clusterRepository.insertUpdate(1, 0, "first"));
+        assertTrue(clusterRepository.insertUpdate(2, 1, "second"));
+        assertTrue(clusterRepository.insertUpdate(3, 2, "other shard"));
+    }
+
+    @Test
+    void claimedUpdatesAreNotClaimedAgainWithinLease() {
+        assertEquals(List.of("first", "second"), List.copyOf(clusterRepository.claimUpdates(NODE, SHARDS, 10, LEASE).values()));
+        assertTrue(clusterRepository.claimUpdates(NODE, SHARDS, 10, LEASE).isEmpty());
+    }
+
+    @Test
+    void expiredClaimsAreClaimedAgain() {
+        clusterRepository.claimUpdates(NODE, SHARDS, 10, LEASE);
+
+        assertEquals(Set.of(1L, 2L), clusterRepository.claimUpdates(NODE, SHARDS, 10, Duration.ZERO).keySet());
+    }
+
+    @Test
+    void handledUpdatesAreNeverClaimedAgain() {
+        clusterRepository.claimUpdates(NODE, SHARDS, 10, LEASE);
+        assertEquals(1, clusterRepository.markHandled(List.of(1L)));
+
+        assertEquals(Set.of(2L), clusterRepository.claimUpdates(NODE, SHARDS, 10, Duration.ZERO).keySet());
+    }
+
+    @Test
+    void releasedUpdatesAreClaimedAgain() {
+        clusterRepository.claimUpdates(NODE, SHARDS, 10, LEASE);
+        clusterRepository.markHandled(List.of(1L));
+        assertEquals(1, clusterRepository.releaseUpdates(List.of(1L, 2L)));
+
+        assertEquals(Set.of(2L), clusterRepository.claimUpdates(NODE, SHARDS, 10, LEASE).keySet());
+    }
+
+    @Test
+    void renewedClaimsAreNotClaimedByAnotherNode() {
+        clusterRepository.claimUpdates("first node", Set.of(0), 10, LEASE);
+        clusterRepository.claimUpdates("second node", Set.of(1), 10, LEASE);
+        jdbcTemplate.update("UPDATE update_inbox SET claimed_at = now() - interval '2 hours'");
+        assertEquals(1, clusterRepository.renewClaims("first node"));
+
+        assertEquals(Set.of(2L), clusterRepository.claimUpdates("third node", SHARDS, 10, LEASE).keySet());
+    }
+
+    @Test
+    void duplicateUpdatesAreIgnoredAfterHandling() {
+        clusterRepository.claimUpdates(NODE, SHARDS, 10, LEASE);
+        clusterRepository.markHandled(List.of(1L, 2L));
+
+        assertFalse(clusterRepository.insertUpdate(1, 0, "first"));
+        assertTrue(clusterRepository.claimUpdates(NODE, SHARDS, 10, Duration.ZERO).isEmpty());
+    }
+
+    private static String env(String name, String defaultValue) {
+        return Objects.requireNonNullElse(System.getenv(name), defaultValue);
+    }
+
+}
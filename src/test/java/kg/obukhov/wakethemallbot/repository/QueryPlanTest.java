@@ -0,0 +1,104 @@
+package kg.obukhov.wakethemallbot.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class QueryPlanTest {
+
+    private static final String SCHEMA = "query_plan_test";
+    private static final int CHATS = 500;
+    private static final int USERS = 20_000;
+    private static final int CHATS_PER_USER = 5;
+
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        String url = "jdbc:postgresql://%s:%s/%s?currentSchema=%s".formatted(env("DB_HOST", "localhost"),
+                env("DB_PORT", "5432"), env("DB_NAME", "wakethemall"), SCHEMA);
+        dataSource = new SingleConnectionDataSource(url, env("DB_USERNAME", "admin"), env("DB_PASSWORD", "admin"), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setDefaultSchema(SCHEMA);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+
+        jdbcTemplate.update("INSERT INTO chat (id, type, title) SELECT -g, 'supergroup', 'Chat ' || g FROM generate_series(1, ?) g", CHATS);
+        jdbcTemplate.update("INSERT INTO chat (id, type) SELECT g, 'private' FROM generate_series(1, ?) g", USERS);
+        jdbcTemplate.update("INSERT INTO telegram_user (id, first_name, private_chat_id) SELECT g, 'User ' || g, g FROM generate_series(1, ?) g", USERS);
+        jdbcTemplate.update("""
+                INSERT INTO user_chat (user_id, chat_id)
+                SELECT DISTINCT u, -(1 + (u * 7919 + k * 104729) % ?)
+                FROM generate_series(1, ?) u, generate_series(1, ?) k
+                """, CHATS, USERS, CHATS_PER_USER);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (jdbcTemplate != null) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    void rosterQueryReadsMembershipsThroughChatIdIndex() throws Exception {
+        List<JsonNode> scans = scans(MentionTargetRepository.FIND_ALL_BY_CHAT_ID.replace("?", "-42"));
+
+        assertTrue(scans.stream().anyMatch(scan -> "idx_user_chat_chat_id".equals(scan.path("Index Name").asText())));
+        assertTrue(scans.stream().noneMatch(scan -> "Seq Scan".equals(scan.path("Node Type").asText())
+                && "user_chat".equals(scan.path("Relation Name").asText())));
+    }
+
+    @Test
+    void privateChatLookupIsSinglePrimaryKeyRead() throws Exception {
+        List<JsonNode> scans = scans(MentionTargetRepository.FIND_PRIVATE_CHAT_ID.replace("?", "42"));
+
+        assertEquals(1, scans.size());
+        assertEquals("telegram_user", scans.getFirst().path("Relation Name").asText());
+        assertTrue(scans.getFirst().path("Node Type").asText().startsWith("Index"));
+    }
+
+    private List<JsonNode> scans(String query) throws Exception {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + query, String.class);
+        List<JsonNode> scans = new ArrayList<>();
+        collectScans(objectMapper.readTree(plan).get(0).get("Plan"), scans);
+        return scans;
+    }
+
+    private static void collectScans(JsonNode node, List<JsonNode> scans) {
+        if (node.has("Relation Name") || node.has("Index Name")) {
+            scans.add(node);
+        }
+        node.path("Plans").forEach(child -> collectScans(child, scans));
+    }
+
+    private static String env(String name, String defaultValue) {
+        return Objects.requireNonNullElse(System.getenv(name), defaultValue);
+    }
+
+}
@@ -0,0 +1,68 @@
+package kg.obukhov.wakethemallbot.service;
+
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryChatUserService extends ChatUserService {
+
+    private final Map<Long, List<MentionTarget>> rosters = new ConcurrentHashMap<>();
+    private final Set<MembershipKey> memberships = ConcurrentHashMap.newKeySet();
+
+    public InMemoryChatUserService() {
+        super(null, null, null, null);
+    }
+
+    public boolean isMember(Long chatId, Long userId) {
+        return memberships.contains(new MembershipKey(userId, chatId));
+    }
+
+    public void putRoster(Long chatId, List<MentionTarget> roster) {
+        rosters.put(chatId, List.copyOf(roster));
+    }
+
+    @Override
+    public List<MentionTarget> findAllByChatId(Long chatId) {
+        return rosters.getOrDefault(chatId, List.of());
+    }
+
+    @Override
+    public Long findPrivateChatId(Long userId) {
+        return null;
+    }
+
+    @Override
+    public void saveChatAndUser(Chat chat, User user) {
+        if (!user.getIsBot()) {
+            memberships.add(new MembershipKey(user.getId(), chat.getId()));
+        }
+    }
+
+    @Override
+    public void flushMemberships() {
+    }
+
+    @Override
+    public void removeUserFromChat(Long userId, Long chatId) {
+        memberships.remove(new MembershipKey(userId, chatId));
+    }
+
+    @Override
+    public void removeMemberships(Collection<MembershipKey> keys) {
+        memberships.removeAll(keys);
+    }
+
+    @Override
+    public void removeChat(Long chatId) {
+        rosters.remove(chatId);
+        memberships.removeIf(key -> key.chatId() == chatId);
+    }
+
+}
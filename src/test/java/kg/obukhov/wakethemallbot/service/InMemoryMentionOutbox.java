@@ -0,0 +1,68 @@
+package kg.obukhov.wakethemallbot.service;
+
+import kg.obukhov.wakethemallbot.model.MentionNotification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InMemoryMentionOutbox extends MentionOutbox {
+
+    private final AtomicLong ids = new AtomicLong(1);
+    private final Map<NotificationKey, Long> keys = new ConcurrentHashMap<>();
+    private final Queue<MentionNotification> available = new ConcurrentLinkedQueue<>();
+
+    public InMemoryMentionOutbox() {
+        super(null, null, null);
+    }
+
+    public int getEnqueuedCount() {
+        return keys.size();
+    }
+
+    @Override
+    public void enqueue(Collection<MentionNotification> notifications) {
+        for (MentionNotification notification : notifications) {
+            NotificationKey key = new NotificationKey(notification.chatId(), notification.messageId(), notification.userId());
+            if (keys.putIfAbsent(key, ids.get()) == null) {
+                available.add(new MentionNotification(ids.getAndIncrement(), notification.chatId(), notification.messageId(),
+                        notification.userId(), notification.privateChatId(), notification.text(), 0));
+            }
+        }
+        signalEnqueued();
+    }
+
+    @Override
+    public List<MentionNotification> claim(int limit) {
+        List<MentionNotification> batch = new ArrayList<>();
+        MentionNotification notification;
+        while (batch.size() < limit && (notification = available.poll()) != null) {
+            batch.add(new MentionNotification(notification.id(), notification.chatId(), notification.messageId(),
+                    notification.userId(), notification.privateChatId(), notification.text(), notification.attempts() + 1));
+        }
+        return batch;
+    }
+
+    @Override
+    public void complete(Collection<Long> ids) {
+    }
+
+    @Override
+    public void discard(Collection<Long> ids) {
+    }
+
+    @Override
+    public void retry(Collection<MentionNotification> notifications) {
+        available.addAll(notifications);
+        signalEnqueued();
+    }
+
+    private record NotificationKey(long chatId, int messageId, long userId) {
+    }
+
+}
@@ -0,0 +1,174 @@
+package kg.obukhov.wakethemallbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kg.obukhov.wakethemallbot.config.BotProperties;
+import kg.obukhov.wakethemallbot.exception.StorageException;
+import kg.obukhov.wakethemallbot.interfaces.ChatMapperImpl;
+import kg.obukhov.wakethemallbot.interfaces.UserMapperImpl;
+import kg.obukhov.wakethemallbot.model.ChatEntity;
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
+import kg.obukhov.wakethemallbot.repository.MembershipStore;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MembershipBufferTest {
+
+    private static final Chat GROUP = new Chat(-100L, "supergroup");
+
+    private final RecordingMembershipStore membershipStore = new RecordingMembershipStore();
+    private final MembershipBuffer membershipBuffer = membershipBuffer(membershipStore, 2);
+
+    @Test
+    void flushesRecordedMembershipsInBatches() {
+        membershipBuffer.record(GROUP, user(1L));
+        membershipBuffer.record(GROUP, user(2L));
+        membershipBuffer.record(GROUP, user(3L));
+        membershipBuffer.record(GROUP, user(1L));
+        assertEquals(3, membershipBuffer.getPendingCount());
+
+        membershipBuffer.flush();
+
+        assertEquals(0, membershipBuffer.getPendingCount());
+        assertEquals(List.of(2, 1), membershipStore.insertedBatchSizes);
+        assertEquals(Set.of(key(1L), key(2L), key(3L)), membershipStore.memberships);
+    }
+
+    @Test
+    void requeuesBatchWhenFlushFails() {
+        membershipBuffer.record(GROUP, user(1L));
+        membershipBuffer.record(GROUP, user(2L));
+        membershipStore.failures = 1;
+
+        membershipBuffer.flush();
+
+        assertEquals(2, membershipBuffer.getPendingCount());
+        assertTrue(membershipStore.memberships.isEmpty());
+
+        membershipBuffer.flush();
+
+        assertEquals(0, membershipBuffer.getPendingCount());
+        assertEquals(Set.of(key(1L), key(2L)), membershipStore.memberships);
+    }
+
+    @Test
+    void doesNotRequeueMembershipRemovedDuringFailedFlush() {
+        membershipBuffer.record(GROUP, user(1L));
+        membershipBuffer.record(GROUP, user(2L));
+        membershipStore.failures = 1;
+        membershipStore.onInsert = () -> membershipBuffer.remove(key(1L));
+
+        membershipBuffer.flush();
+        membershipStore.onInsert = () -> {
+        };
+        membershipBuffer.flush();
+
+        assertEquals(0, membershipBuffer.getPendingCount());
+        assertEquals(Set.of(key(2L)), membershipStore.memberships);
+    }
+
+    @Test
+    void appliesRemovalAndRecordInCallOrder() {
+        membershipBuffer.record(GROUP, user(1L));
+        membershipBuffer.record(GROUP, user(2L));
+        membershipBuffer.flush();
+
+        membershipBuffer.remove(key(1L));
+        membershipBuffer.record(GROUP, user(1L));
+        membershipBuffer.record(GROUP, user(3L));
+        membershipBuffer.remove(key(3L));
+        membershipBuffer.flush();
+
+        assertEquals(Set.of(key(1L), key(2L)), membershipStore.memberships);
+    }
+
+    private static MembershipBuffer membershipBuffer(MembershipStore membershipStore, int batchSize) {
+        BotProperties properties = new BotProperties();
+        properties.getMembership().setBatchSize(batchSize);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new MembershipBuffer(membershipStore, new ChatMapperImpl(), new UserMapperImpl(),
+                new RosterCache(properties, meterRegistry), properties, meterRegistry);
+    }
+
+    private static User user(Long id) {
+        return new User(id, "User " + id, false);
+    }
+
+    private static MembershipKey key(Long userId) {
+        return new MembershipKey(userId, GROUP.getId());
+    }
+
+    private static class RecordingMembershipStore implements MembershipStore {
+
+        private final Set<MembershipKey> memberships = new HashSet<>();
+        private final List<Integer> insertedBatchSizes = new ArrayList<>();
+        private int failures;
+        private Runnable onInsert = () -> {
+        };
+
+        @Override
+        public List<MentionTarget> findAllByChatId(Long chatId) {
+            return List.of();
+        }
+
+        @Override
+        public Long findPrivateChatId(Long userId) {
+            return null;
+        }
+
+        @Override
+        public void insertAll(Collection<ChatEntity> chats, Collection<TelegramUserEntity> users,
+                              Collection<MembershipKey> memberships) {
+            onInsert.run();
+            if (failures > 0) {
+                failures--;
+                throw new StorageException("Storage is unavailable");
+            }
+            insertedBatchSizes.add(memberships.size());
+            this.memberships.addAll(memberships);
+        }
+
+        @Override
+        public int deleteAll(Collection<MembershipKey> memberships) {
+            int deleted = 0;
+            for (MembershipKey membership : memberships) {
+                if (this.memberships.remove(membership)) {
+                    deleted++;
+                }
+            }
+            return deleted;
+        }
+
+        @Override
+        public int markVerified(Collection<MembershipKey> memberships) {
+            return 0;
+        }
+
+        @Override
+        public List<MembershipKey> findLeastRecentlyVerified(int limit) {
+            return List.of();
+        }
+
+        @Override
+        public void deleteChat(Long chatId) {
+            memberships.removeIf(membership -> membership.chatId() == chatId);
+        }
+
+        @Override
+        public int deleteEmptyChats() {
+            return 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+package kg.obukhov.wakethemallbot.store;
+
+import kg.obukhov.wakethemallbot.model.ChatEntity;
+import kg.obukhov.wakethemallbot.model.MembershipKey;
+import kg.obukhov.wakethemallbot.model.MentionTarget;
+import kg.obukhov.wakethemallbot.model.TelegramUserEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedMembershipStoreTest {
+
+    private static final long LOG_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsMembershipsAcrossRestarts() throws IOException {
+        try (EmbeddedMembershipStore store = new EmbeddedMembershipStore(directory, LOG_SIZE)) {
+            store.insertAll(List.of(chat(-1L)), List.of(user(1L, null), user(2L, 20L)),
+                    List.of(new MembershipKey(1L, -1L), new MembershipKey(2L, -1L)));
+            store.deleteAll(List.of(new MembershipKey(1L, -1L)));
+        }
+
+        try (EmbeddedMembershipStore store = new EmbeddedMembershipStore(directory, LOG_SIZE)) {
+            assertEquals(List.of(new MentionTarget(2L, "User 2", null, "user2", 20L)), store.findAllByChatId(-1L));
+            assertNull(store.findPrivateChatId(1L));
+            assertEquals(20L, store.findPrivateChatId(2L));
+        }
+    }
+
+    @Test
+    void compactsLogIntoSnapshot() throws IOException {
+        try (EmbeddedMembershipStore store = new EmbeddedMembershipStore(directory, 1024)) {
+            for (long userId = 1; userId <= 100; userId++) {
+                store.insertAll(List.of(chat(-1L)), List.of(user(userId, null)),
+                        List.of(new MembershipKey(userId, -1L)));
+            }
+            store.deleteChat(-2L);
+            store.insertAll(List.of(chat(-2L)), List.of(), List.of());
+            assertEquals(1, store.deleteEmptyChats());
+        }
+
+        try (EmbeddedMembershipStore store = new EmbeddedMembershipStore(directory, 1024)) {
+            assertEquals(100, store.findAllByChatId(-1L).size());
+            assertTrue(store.findAllByChatId(-2L).isEmpty());
+        }
+    }
+
+    @Test
+    void ignoresTornTail() throws IOException {
+        try (EmbeddedMembershipStore store = new EmbeddedMembershipStore(directory, LOG_SIZE)) {
+            store.insertAll(List.of(chat(-1L)), List.of(user(1L, null), user(2L, null)),
+                    List.of(new MembershipKey(1L, -1L)));
+            store.insertAll(List.of(), List.of(), List.of(new MembershipKey(2L, -1L)));
+        }
+
+        try (FileChannel channel = FileChannel.open(directory.resolve("membership.log"), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long lastRecord = findLastRecord(channel);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), lastRecord + 8);
+        }
+
+        try (EmbeddedMembershipStore store = new EmbeddedMembershipStore(directory, LOG_SIZE)) {
+            assertEquals(List.of(1L), store.findAllByChatId(-1L).stream().map(MentionTarget::id).toList());
+            store.insertAll(List.of(), List.of(), List.of(new MembershipKey(2L, -1L)));
+        }
+
+        try (EmbeddedMembershipStore store = new EmbeddedMembershipStore(directory, LOG_SIZE)) {
+            assertEquals(2, store.findAllByChatId(-1L).size());
+        }
+    }
+
+    @Test
+    void findsLeastRecentlyVerifiedGroupMemberships() throws IOException {
+        try (EmbeddedMembershipStore store = new EmbeddedMembershipStore(directory, LOG_SIZE)) {
+            store.insertAll(List.of(chat(-1L), chat(5L)), List.of(user(1L, null), user(5L, 5L)),
+                    List.of(new MembershipKey(1L, -1L), new MembershipKey(5L, 5L)));
+
+            assertEquals(List.of(new MembershipKey(1L, -1L)), store.findLeastRecentlyVerified(10));
+            assertEquals(1, store.markVerified(List.of(new MembershipKey(1L, -1L), new MembershipKey(3L, -1L))));
+        }
+    }
+
+    @Test
+    void keepsImportedVerificationTimes() throws IOException {
+        Map<MembershipKey, Instant> imported = new LinkedHashMap<>();
+        imported.put(new MembershipKey(1L, -1L), Instant.parse("2024-05-01T00:00:00Z"));
+        imported.put(new MembershipKey(2L, -1L), null);
+        imported.put(new MembershipKey(3L, -1L), Instant.parse("2023-05-01T00:00:00Z"));
+        try (EmbeddedMembershipStore store = new EmbeddedMembershipStore(directory, LOG_SIZE)) {
+            store.insertAll(List.of(chat(-1L)), List.of(user(1L, null), user(2L, null), user(3L, null)), List.of());
+            store.importMemberships(imported);
+        }
+
+        try (EmbeddedMembershipStore store = new EmbeddedMembershipStore(directory, LOG_SIZE)) {
+            assertEquals(List.of(new MembershipKey(2L, -1L), new MembershipKey(3L, -1L), new MembershipKey(1L, -1L)),
+                    store.findLeastRecentlyVerified(10));
+        }
+    }
+
+    private static long findLastRecord(FileChannel channel) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        long position = 16;
+        long last = position;
+        while (true) {
+            length.clear();
+            channel.read(length, position);
+            int size = length.flip().getInt();
+            if (size == 0) {
+                return last;
+            }
+            last = position;
+            position += 8 + size;
+        }
+    }
+
+    private static ChatEntity chat(Long id) {
+        ChatEntity chat = new ChatEntity();
+        chat.setId(id);
+        chat.setType(id < 0 ? "supergroup" : "private");
+        chat.setTitle("Chat " + id);
+        return chat;
+    }
+
+    private static TelegramUserEntity user(Long id, Long privateChatId) {
+        TelegramUserEntity user = new TelegramUserEntity();
+        user.setId(id);
+        user.setFirstName("User " + id);
+        user.setUserName("user" + id);
+        user.setPrivateChatId(privateChatId);
+        return user;
+    }
+
+}